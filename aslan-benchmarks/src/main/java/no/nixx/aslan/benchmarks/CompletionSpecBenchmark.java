@@ -0,0 +1,111 @@
+package no.nixx.aslan.benchmarks;
+
+import no.nixx.aslan.api.Executable;
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.core.ExecutableLocator;
+import no.nixx.aslan.core.ExecutionContextFactoryImpl;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.core.completion.Completable;
+import no.nixx.aslan.core.completion.CompletionResult;
+import no.nixx.aslan.core.completion.CompletionSpec;
+import no.nixx.aslan.core.completion.CompletionSpecRoot;
+import no.nixx.aslan.core.completion.Completor;
+import no.nixx.aslan.core.completion.specs.OptionCompletionSpec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Completes the last argument of a command whose completion spec is a deep tree of options, with each preceding
+ * argument selecting one option on the next level.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletionSpecBenchmark {
+
+    @Param({"4", "12"})
+    public int depth;
+
+    @Param({"4", "8"})
+    public int optionsPerLevel;
+
+    private String command;
+    private Completor completor;
+    private ExecutableLocator executableLocator;
+    private ExecutionContext executionContext;
+
+    @Setup
+    public void setUp() {
+        final CompletionSpecRoot root = new CompletionSpecRoot(createOptions(1));
+        final StringBuilder sb = new StringBuilder("deep");
+        for (int level = 1; level < depth; level++) {
+            sb.append(" option").append(level).append('-').append(optionsPerLevel - 1);
+        }
+        command = sb.append(" option").toString();
+
+        completor = new Completor();
+        executableLocator = new DeepExecutableLocator(root);
+        executionContext = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl("."))
+                .createExecutionContext(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+    }
+
+    @Benchmark
+    public CompletionResult getCompletions() {
+        return completor.getCompletions(command, command.length(), executableLocator, executionContext);
+    }
+
+    private CompletionSpec[] createOptions(int level) {
+        final CompletionSpec[] options = new CompletionSpec[optionsPerLevel];
+        for (int i = 0; i < optionsPerLevel; i++) {
+            // Only the last option on each level has children, to keep the size of the tree linear in its depth
+            final boolean hasChildren = (level < depth) && (i == optionsPerLevel - 1);
+            options[i] = new OptionCompletionSpec("option" + level + "-" + i, hasChildren ? createOptions(level + 1) : new CompletionSpec[0]);
+        }
+        return options;
+    }
+
+    private static class DeepExecutableLocator implements ExecutableLocator {
+        private final CompletionSpecRoot root;
+
+        DeepExecutableLocator(CompletionSpecRoot root) {
+            this.root = root;
+        }
+
+        @Override
+        public Executable lookupExecutable(String name) {
+            return new DeepExecutable(root);
+        }
+
+        @Override
+        public List<String> findExecutableCandidates(String name) {
+            return singletonList("deep");
+        }
+    }
+
+    private static class DeepExecutable implements Executable, Completable {
+        private final CompletionSpecRoot root;
+
+        DeepExecutable(CompletionSpecRoot root) {
+            this.root = root;
+        }
+
+        @Override
+        public int getExitStatus() {
+            return 0;
+        }
+
+        @Override
+        public CompletionSpecRoot getCompletionSpec(ExecutionContext executionContext) {
+            return root;
+        }
+    }
+}
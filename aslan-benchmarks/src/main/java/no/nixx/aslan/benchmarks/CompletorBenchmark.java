@@ -0,0 +1,68 @@
+package no.nixx.aslan.benchmarks;
+
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.core.ExecutableLocatorImpl;
+import no.nixx.aslan.core.ExecutionContextFactoryImpl;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.core.completion.CompletionResult;
+import no.nixx.aslan.core.completion.Completor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Completes executables and paths in a directory of generated files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletorBenchmark {
+
+    @Param({"100", "5000"})
+    public int numberOfFiles;
+
+    @Param({"gr", "cat ", "cat file000", "cat dir/"})
+    public String command;
+
+    private Path directory;
+    private Completor completor;
+    private ExecutableLocatorImpl executableLocator;
+    private ExecutionContext executionContext;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("aslan-benchmarks");
+        final Path subdirectory = Files.createDirectory(directory.resolve("dir"));
+        for (int i = 0; i < numberOfFiles; i++) {
+            Files.createFile(directory.resolve(String.format("file%05d.txt", i)));
+            Files.createFile(subdirectory.resolve(String.format("file%05d.txt", i)));
+        }
+
+        completor = new Completor();
+        executableLocator = new ExecutableLocatorImpl();
+        executionContext = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl(directory))
+                .createExecutionContext(new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public CompletionResult getCompletions() {
+        return completor.getCompletions(command, command.length(), executableLocator, executionContext);
+    }
+}
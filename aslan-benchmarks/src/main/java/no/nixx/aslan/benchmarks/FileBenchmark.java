@@ -0,0 +1,87 @@
+package no.nixx.aslan.benchmarks;
+
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.api.Program;
+import no.nixx.aslan.core.ExecutionContextFactoryImpl;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.core.executables.Cat;
+import no.nixx.aslan.core.executables.Grep;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Runs cat and grep over a generated text file, writing their output to a black hole.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileBenchmark {
+
+    static final String FILENAME = "input.txt";
+
+    @Param({"1048576", "67108864"})
+    public int fileSize;
+
+    private Path directory;
+    private ExecutionContextFactoryImpl executionContextFactory;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("aslan-benchmarks");
+        Files.write(directory.resolve(FILENAME), Inputs.lines(fileSize, 0.01, "needle"));
+        executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl(directory));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void cat(Blackhole blackhole) {
+        run(new Cat(), singletonList(FILENAME), blackhole);
+    }
+
+    @Benchmark
+    public void grepLiteral(Blackhole blackhole) {
+        run(new Grep(), asList("needle", FILENAME), blackhole);
+    }
+
+    @Benchmark
+    public void grepLiteralWithLineNumbers(Blackhole blackhole) {
+        run(new Grep(), asList("-n", "needle", FILENAME), blackhole);
+    }
+
+    @Benchmark
+    public void grepRegex(Blackhole blackhole) {
+        run(new Grep(), asList("n[e]+dle", FILENAME), blackhole);
+    }
+
+    @Benchmark
+    public void grepIgnoreCase(Blackhole blackhole) {
+        run(new Grep(), asList("-i", "NEEDLE", FILENAME), blackhole);
+    }
+
+    private void run(Program program, List<String> args, Blackhole blackhole) {
+        final BlackholeOutputStream out = new BlackholeOutputStream(blackhole);
+        final ExecutionContext context = executionContextFactory.createExecutionContext(new ByteArrayInputStream(new byte[0]), out, out);
+        program.run(context, args);
+    }
+}
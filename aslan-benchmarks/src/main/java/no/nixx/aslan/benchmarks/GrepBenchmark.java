@@ -0,0 +1,80 @@
+package no.nixx.aslan.benchmarks;
+
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.core.ExecutionContextFactoryImpl;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.core.executables.Grep;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Compares grep over standard input with the line oriented implementation it replaced, which decoded every line into
+ * a String before testing it. Run with -prof gc to see the allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GrepBenchmark {
+
+    // Roughly one line in a hundred matches
+    @Param({"0.01"})
+    public double matchRatio;
+
+    private byte[] input;
+    private ExecutionContextFactoryImpl executionContextFactory;
+
+    @Setup
+    public void setUp() {
+        input = Inputs.lines(32 * 1024 * 1024, matchRatio, "needle");
+        executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl("."));
+    }
+
+    @Benchmark
+    public void grepLiteral(Blackhole blackhole) {
+        new Grep().run(createContext(blackhole), singletonList("needle"));
+    }
+
+    @Benchmark
+    public void grepRegex(Blackhole blackhole) {
+        new Grep().run(createContext(blackhole), singletonList("n[e]+dle"));
+    }
+
+    @Benchmark
+    public void legacyGrep(Blackhole blackhole) {
+        legacyGrep(createContext(blackhole), "needle");
+    }
+
+    private ExecutionContext createContext(Blackhole blackhole) {
+        final BlackholeOutputStream out = new BlackholeOutputStream(blackhole);
+        return executionContextFactory.createExecutionContext(new ByteArrayInputStream(input), out, out);
+    }
+
+    // The implementation before the byte level scanning, kept here as the baseline
+    private static void legacyGrep(ExecutionContext context, String pattern) {
+        final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(context.input()));
+        final PrintWriter pw = new PrintWriter(context.output(), true);
+
+        try {
+            while (true) {
+                final String line = bufferedReader.readLine();
+                if (line == null) {
+                    break;
+                }
+
+                if (line.contains(pattern)) {
+                    pw.println(line);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package no.nixx.aslan.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+class Inputs {
+
+    private static final String[] words = {"lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit"};
+
+    // Text lines of five to fifteen words, where about matchRatio of the lines contain the marker
+    static byte[] lines(int size, double matchRatio, String marker) {
+        final Random random = new Random(42);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(size + 256);
+        final StringBuilder line = new StringBuilder();
+        while (out.size() < size) {
+            line.setLength(0);
+            final int numberOfWords = 5 + random.nextInt(11);
+            final int markerPosition = (random.nextDouble() < matchRatio) ? random.nextInt(numberOfWords) : -1;
+            for (int i = 0; i < numberOfWords; i++) {
+                line.append(i == markerPosition ? marker : words[random.nextInt(words.length)]).append(' ');
+            }
+            line.setCharAt(line.length() - 1, '\n');
+            final byte[] bytes = line.toString().getBytes();
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+}
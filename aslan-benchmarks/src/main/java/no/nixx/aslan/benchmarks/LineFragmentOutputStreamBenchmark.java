@@ -0,0 +1,74 @@
+package no.nixx.aslan.benchmarks;
+
+import no.nixx.aslan.ui.component.linefragment.Fragment;
+import no.nixx.aslan.ui.component.linefragment.Line;
+import no.nixx.aslan.ui.component.linefragment.LineFragmentOutputStream;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static no.nixx.aslan.core.utils.ListUtils.lastOf;
+
+/**
+ * Splits buffered output into lines and fragments on flush, applying the changes synchronously to a plain list so
+ * that only the stream itself is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LineFragmentOutputStreamBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int linesPerFlush;
+
+    private byte[] output;
+
+    @Setup
+    public void setUp() {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < linesPerFlush; i++) {
+            sb.append("-rw-r--r--  1 aslan  staff  ").append(i).append(" Jan  1 00:00 file").append(i).append(".txt\n");
+        }
+        output = sb.toString().getBytes();
+    }
+
+    @Benchmark
+    public List<Line> flush() {
+        final List<Line> list = new ArrayList<>();
+        final LineFragmentOutputStream os = new LineFragmentOutputStream(list, new SynchronousAdapter(list));
+        os.write(output, 0, output.length);
+        os.flush();
+        return list;
+    }
+
+    private static class SynchronousAdapter implements LineFragmentOutputStream.Adapter {
+
+        private final List<Line> list;
+
+        SynchronousAdapter(List<Line> list) {
+            this.list = list;
+        }
+
+        @Override
+        public void addFragmentToLine(Fragment fragment, Line line) {
+            line.add(fragment);
+        }
+
+        @Override
+        public void addLinesToList(List<Line> lines) {
+            list.addAll(lines);
+        }
+
+        @Override
+        public void removeLastLineIfEmpty() {
+            if (lastOf(list).isEmpty()) {
+                list.remove(list.size() - 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package no.nixx.aslan.benchmarks;
+
+import no.nixx.aslan.pipeline.PipelineParser;
+import no.nixx.aslan.pipeline.model.Pipeline;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"simple", "pipeline", "substitutions"})
+    public String commandType;
+
+    @Param({"antlr", "recursive-descent"})
+    public String implementation;
+
+    private String command;
+    private PipelineParser parser;
+
+    @Setup
+    public void setUp() {
+        switch (commandType) {
+            case "simple":
+                command = "ls -l foo";
+                break;
+            case "pipeline":
+                command = "cat foo.txt | grep -i bar | grep -v baz | cat - bar.txt";
+                break;
+            case "substitutions":
+                command = "echo \"$(echo ${FOO} | grep $(echo o)) and ${BAR}\" prefix$(echo baz)suffix";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command type: " + commandType);
+        }
+        System.setProperty(PipelineParser.IMPLEMENTATION_PROPERTY, implementation);
+        parser = PipelineParser.newInstance();
+    }
+
+    @Benchmark
+    public Pipeline parseCommand() {
+        return parser.parseCommand(command);
+    }
+}
@@ -0,0 +1,73 @@
+package no.nixx.aslan.benchmarks;
+
+import no.nixx.aslan.core.Pipe;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves 64 MiB through a pipe from a writing to a reading thread, for different pipe capacities and write sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PipeBenchmark {
+
+    static final long BYTES_PER_OPERATION = 64 * 1024 * 1024;
+
+    @Param({"4096", "65536", "1048576"})
+    public int capacity;
+
+    @Param({"512", "65536"})
+    public int chunkSize;
+
+    private ExecutorService writer;
+    private byte[] chunk;
+    private byte[] readBuffer;
+
+    @Setup
+    public void setUp() {
+        writer = Executors.newSingleThreadExecutor();
+        chunk = new byte[chunkSize];
+        readBuffer = new byte[chunkSize];
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        writer.shutdown();
+        writer.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public long transfer() throws IOException, InterruptedException, ExecutionException {
+        final Pipe pipe = new Pipe(capacity);
+        final Future<?> written = writer.submit(() -> {
+            try (OutputStream sink = pipe.getSink()) {
+                for (long remaining = BYTES_PER_OPERATION; remaining > 0; remaining -= chunk.length) {
+                    sink.write(chunk, 0, (int) Math.min(chunk.length, remaining));
+                }
+            }
+            return null;
+        });
+
+        long bytesRead = 0;
+        try (InputStream source = pipe.getSource()) {
+            int n;
+            while ((n = source.read(readBuffer)) != -1) {
+                bytesRead += n;
+            }
+        }
+        written.get();
+        return bytesRead;
+    }
+}
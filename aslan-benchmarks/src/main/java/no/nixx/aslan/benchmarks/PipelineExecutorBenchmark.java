@@ -0,0 +1,69 @@
+package no.nixx.aslan.benchmarks;
+
+import no.nixx.aslan.core.ExecutableLocatorImpl;
+import no.nixx.aslan.core.ExecutionContextFactoryImpl;
+import no.nixx.aslan.core.PipelineExecutorImpl;
+import no.nixx.aslan.core.StageScheduler;
+import no.nixx.aslan.core.ThreadPoolStageScheduler;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.pipeline.PipelineParser;
+import no.nixx.aslan.pipeline.model.Pipeline;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the fixed cost of running a pipeline: argument expansion, stage setup, scheduling and tearing down, with
+ * one echo followed by cats passing a single line along.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineExecutorBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int stages;
+
+    // Virtual threads fall back to the pool on runtimes without them
+    @Param({"pool", "virtual"})
+    public String scheduler;
+
+    private ExecutorService threadPool;
+    private StageScheduler stageScheduler;
+    private ExecutableLocatorImpl executableLocator;
+    private ExecutionContextFactoryImpl executionContextFactory;
+    private Pipeline pipeline;
+
+    @Setup
+    public void setUp() {
+        threadPool = Executors.newCachedThreadPool();
+        stageScheduler = scheduler.equals("virtual") ? StageScheduler.preferVirtualThreads(threadPool) : new ThreadPoolStageScheduler(threadPool);
+        executableLocator = new ExecutableLocatorImpl();
+        executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl("."));
+
+        final StringBuilder command = new StringBuilder("echo foo");
+        for (int i = 1; i < stages; i++) {
+            command.append(" | cat");
+        }
+        pipeline = new PipelineParser().parseCommand(command.toString());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void execute(Blackhole blackhole) {
+        final BlackholeOutputStream out = new BlackholeOutputStream(blackhole);
+        new PipelineExecutorImpl(stageScheduler, executableLocator, executionContextFactory, new ByteArrayInputStream(new byte[0]), out, out).execute(pipeline);
+    }
+}
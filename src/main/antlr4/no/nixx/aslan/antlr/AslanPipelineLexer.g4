@@ -1,6 +1,6 @@
 lexer grammar AslanPipelineLexer;
 
-tokens { ARG, CS_START, DOLLAR, LT_START, PIPE, STR_START, VS_START, WS }
+tokens { AMP, ARG, CS_START, DOLLAR, LT_START, PIPE, STR_START, VS_START, WS }
 
 // Default mode
 LT_START    : '\'' -> pushMode(LT);
@@ -8,7 +8,8 @@ STR_START   : '\"' -> pushMode(STR);
 CS_START    : '$(' -> pushMode(CS);
 VS_START    : '${' -> pushMode(VS);
 PIPE        : '|';
-ARG         : ~["'|$\t ]+;
+AMP         : '&';
+ARG         : ~["'|&$\t ]+;
 WS          : [\t ]+;
 DOLLAR      : '$';
 
@@ -2,6 +2,8 @@ parser grammar AslanPipelineParser;
 
 options { tokenVocab=AslanPipelineLexer; }
 
+line        : pipeline background? EOF;
+background  : AMP WS*;
 pipeline    : cmd (pipe cmd)*;
 pipe        : PIPE;
 cmd         : (arg|space)+;
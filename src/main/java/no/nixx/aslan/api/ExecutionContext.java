@@ -1,7 +1,12 @@
 package no.nixx.aslan.api;
 
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 public interface ExecutionContext {
@@ -11,6 +16,32 @@ public interface ExecutionContext {
 
     OutputStream error();
 
+    // The channel views share position and lifecycle with input() and output(). Streams that are channels themselves,
+    // like the pipes between stages, are returned as is, so ByteBuffers are handed over without an extra copy. File
+    // streams are returned as their FileChannel, which allows transferTo() between files.
+
+    default ReadableByteChannel inputChannel() {
+        final InputStream input = input();
+        if (input instanceof ReadableByteChannel) {
+            return (ReadableByteChannel) input;
+        } else if (input instanceof FileInputStream) {
+            return ((FileInputStream) input).getChannel();
+        } else {
+            return Channels.newChannel(input);
+        }
+    }
+
+    default WritableByteChannel outputChannel() {
+        final OutputStream output = output();
+        if (output instanceof WritableByteChannel) {
+            return (WritableByteChannel) output;
+        } else if (output instanceof FileOutputStream) {
+            return ((FileOutputStream) output).getChannel();
+        } else {
+            return Channels.newChannel(output);
+        }
+    }
+
     WorkingDirectory getWorkingDirectory();
 
     boolean isVariableSet(String name);
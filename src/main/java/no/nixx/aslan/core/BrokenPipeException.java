@@ -0,0 +1,32 @@
+package no.nixx.aslan.core;
+
+import java.io.IOException;
+
+/**
+ * Thrown when writing to a pipe whose reading end has been closed, which happens when the next stage of a pipeline
+ * has finished without reading all of its input. Like SIGPIPE, it tells the writing stage that there is no point in
+ * going on, and the executor ends the stage quietly.
+ */
+public class BrokenPipeException extends IOException {
+
+    private static final long serialVersionUID = -3318409357290521263L;
+
+    public BrokenPipeException() {
+        super("Broken pipe");
+    }
+
+    /**
+     * Returns true if the throwable is a BrokenPipeException, or was caused by one.
+     */
+    public static boolean isCausedByBrokenPipe(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof BrokenPipeException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+}
@@ -1,16 +1,20 @@
 package no.nixx.aslan.core;
 
 import no.nixx.aslan.api.Executable;
+import no.nixx.aslan.core.completion.PrefixIndex;
 import no.nixx.aslan.core.executables.*;
 import no.nixx.aslan.core.executables.shellutils.Cd;
+import no.nixx.aslan.core.executables.shellutils.Fg;
+import no.nixx.aslan.core.executables.shellutils.Jobs;
 import no.nixx.aslan.core.executables.shellutils.Pwd;
 import no.nixx.aslan.core.executables.shellutils.Set;
+import no.nixx.aslan.core.executables.shellutils.Time;
 import no.nixx.aslan.core.executables.shellutils.Unset;
+import no.nixx.aslan.core.executables.shellutils.Wait;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class ExecutableLocatorImpl implements ExecutableLocator {
 
@@ -23,11 +27,18 @@ public class ExecutableLocatorImpl implements ExecutableLocator {
         map.put("grep", Grep.class);
         map.put("echo", Echo.class);
         map.put("cat", Cat.class);
+        map.put("head", Head.class);
         map.put("set", Set.class);
         map.put("unset", Unset.class);
+        map.put("time", Time.class);
+        map.put("jobs", Jobs.class);
+        map.put("fg", Fg.class);
+        map.put("wait", Wait.class);
         map.put("failwhenrun", FailWhenRun.class);
     }
 
+    private final PrefixIndex names = new PrefixIndex(map.keySet());
+
     @Override
     public Executable lookupExecutable(String name) {
         if (map.containsKey(name)) {
@@ -44,6 +55,6 @@ public class ExecutableLocatorImpl implements ExecutableLocator {
 
     @Override
     public List<String> findExecutableCandidates(String partialName) {
-        return map.keySet().stream().filter(e -> e.startsWith(partialName)).collect(Collectors.toList());
+        return names.getMatches(partialName);
     }
 }
\ No newline at end of file
@@ -11,7 +11,9 @@ import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
 
 public class ExecutionContextFactoryImpl implements ExecutionContextFactory {
 
+    // Guarded by this, since stages read and set variables from the threads they run on
     private final Map<String, String> variables = new HashMap<>();
+    private final JobTable jobTable = new JobTable();
 
     private WorkingDirectory workingDirectory;
 
@@ -19,11 +21,15 @@ public class ExecutionContextFactoryImpl implements ExecutionContextFactory {
         this.workingDirectory = checkNotNull(initialWorkingDirectory);
     }
 
-    public boolean isVariableSet(String name) {
+    public JobTable getJobTable() {
+        return jobTable;
+    }
+
+    public synchronized boolean isVariableSet(String name) {
         return variables.containsKey(checkNotNull(name));
     }
 
-    public String getVariable(String name) {
+    public synchronized String getVariable(String name) {
         final String value = variables.get(name);
         if (value == null) {
             throw new IllegalArgumentException("No such variable: " + name);
@@ -32,17 +38,17 @@ public class ExecutionContextFactoryImpl implements ExecutionContextFactory {
         }
     }
 
-    public List<String> getVariableNames() {
+    public synchronized List<String> getVariableNames() {
         final ArrayList<String> variableNames = new ArrayList<>(variables.keySet());
         Collections.sort(variableNames);
         return variableNames;
     }
 
-    public void setVariable(String name, String value) {
+    public synchronized void setVariable(String name, String value) {
         variables.put(checkNotNull(name), checkNotNull(value));
     }
 
-    public void unsetVariable(String name) {
+    public synchronized void unsetVariable(String name) {
         if (variables.remove(name) == null) {
             throw new IllegalArgumentException("No such variable: " + name);
         }
@@ -148,6 +154,11 @@ public class ExecutionContextFactoryImpl implements ExecutionContextFactory {
             public void unsetVariable(String name) {
                 ExecutionContextFactoryImpl.this.unsetVariable(name);
             }
+
+            @Override
+            public JobTable getJobTable() {
+                return jobTable;
+            }
         };
     }
 }
\ No newline at end of file
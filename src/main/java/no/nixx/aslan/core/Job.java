@@ -0,0 +1,61 @@
+package no.nixx.aslan.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * A pipeline started in the background with &. A job that could not be started, like when a command is not found, has
+ * the exit status 1.
+ */
+public class Job {
+    public final int id;
+    public final String command;
+    public final PipelineExecution execution;
+
+    Job(int id, String command, PipelineExecution execution) {
+        this.id = id;
+        this.command = checkNotNull(command);
+        this.execution = checkNotNull(execution);
+    }
+
+    public boolean isDone() {
+        return execution.getResult().isDone();
+    }
+
+    /**
+     * Waits for the job to finish and returns its exit status.
+     */
+    public int waitFor() throws InterruptedException {
+        try {
+            return execution.getResult().get().getExitStatus();
+        } catch (ExecutionException e) {
+            return 1;
+        }
+    }
+
+    // Like the status column of the jobs builtin in bash
+    public String getStatus() {
+        final CompletableFuture<PipelineResult> result = execution.getResult();
+        if (!result.isDone()) {
+            return "Running";
+        } else if (result.isCompletedExceptionally()) {
+            return "Exit 1";
+        } else if (result.join().cancelled) {
+            return "Cancelled";
+        } else {
+            final int exitStatus = result.join().getExitStatus();
+            return (exitStatus == 0) ? "Done" : "Exit " + exitStatus;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Job{" +
+                "id=" + id +
+                ", command='" + command + '\'' +
+                ", status=" + getStatus() +
+                '}';
+    }
+}
@@ -0,0 +1,90 @@
+package no.nixx.aslan.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.IntFunction;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * The background jobs of a shell. Like in bash, a new job is numbered one higher than the highest numbered job in the
+ * table, and a job stays in the table after it has finished until it is removed, so that its status can be reported.
+ */
+public class JobTable {
+
+    private final TreeMap<Integer, Job> jobs = new TreeMap<>();
+
+    // The ids of jobs that are being started, which are reserved but not in the table yet
+    private final TreeSet<Integer> startingIds = new TreeSet<>();
+
+    /**
+     * Adds a job for the pipeline started by the given function. The function is given the id of the job, so the output
+     * of the pipeline can be tagged with it. It is called without holding the lock of the table, as starting a pipeline
+     * might run command substitutions that look at the jobs.
+     */
+    public Job start(String command, IntFunction<PipelineExecution> starter) {
+        checkNotNull(command);
+        checkNotNull(starter);
+
+        final int id = reserveId();
+        try {
+            final Job job = new Job(id, command, starter.apply(id));
+            synchronized (this) {
+                jobs.put(id, job);
+            }
+            return job;
+        } finally {
+            synchronized (this) {
+                startingIds.remove(id);
+            }
+        }
+    }
+
+    public synchronized List<Job> getJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    public synchronized Job getJob(int id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * Returns the job with the given number, with or without a leading %, like in "fg %1".
+     */
+    public synchronized Job getJob(String jobSpec) {
+        final String id = jobSpec.startsWith("%") ? jobSpec.substring(1) : jobSpec;
+        Job job;
+        try {
+            job = jobs.get(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            job = null;
+        }
+
+        if (job == null) {
+            throw new IllegalArgumentException("No such job: " + jobSpec);
+        } else {
+            return job;
+        }
+    }
+
+    /**
+     * Returns the most recently started job, or null if there are no jobs.
+     */
+    public synchronized Job getCurrentJob() {
+        return jobs.isEmpty() ? null : jobs.lastEntry().getValue();
+    }
+
+    public synchronized void remove(Job job) {
+        jobs.remove(job.id, job);
+    }
+
+    private synchronized int reserveId() {
+        final int highestJobId = jobs.isEmpty() ? 0 : jobs.lastKey();
+        final int highestStartingId = startingIds.isEmpty() ? 0 : startingIds.last();
+        final int id = Math.max(highestJobId, highestStartingId) + 1;
+        startingIds.add(id);
+        return id;
+    }
+}
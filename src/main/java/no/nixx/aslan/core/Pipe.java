@@ -1,26 +1,300 @@
 package no.nixx.aslan.core;
 
 import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.locks.LockSupport;
 
+import static no.nixx.aslan.core.utils.Preconditions.checkArgument;
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * A pipe between exactly one writing and one reading thread, backed by a ring buffer. Each side publishes its
+ * position through a volatile field and parks when the buffer is full or empty, so no locks are taken on the data
+ * path and a blocked side is woken up as soon as there is something to do.
+ * <p>
+ * The source and sink are also channels, so stages that work on {@link ByteBuffer}s move data straight between their
+ * buffers and the ring buffer instead of going through an intermediate byte array.
+ * <p>
+ * When the source is closed, a writer blocked on the sink is woken up, and it and any later writes fail with a
+ * {@link BrokenPipeException}.
+ */
 public class Pipe {
-    private final PipedInputStream source = new PipedInputStream();
-    private final PipedOutputStream sink = new PipedOutputStream();
+
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final byte[] buffer;
+    private final int mask;
+    private final Source source = new Source();
+    private final Sink sink = new Sink();
 
     public Pipe() {
-        try {
-            source.connect(sink);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        this(DEFAULT_CAPACITY);
     }
 
-    public PipedInputStream getSource() {
+    public Pipe(int capacity) {
+        checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1);
+        this.buffer = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public InputStream getSource() {
         return source;
     }
 
-    public PipedOutputStream getSink() {
+    public OutputStream getSink() {
         return sink;
     }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Closes both ends of the pipe, so that blocked and later reads and writes fail right away. The source is closed
+     * first, so a reader that sees the sink closed fails instead of taking it for the end of the stream.
+     */
+    public void close() {
+        source.close();
+        sink.close();
+    }
+
+    public long getBytesWritten() {
+        return sink.position;
+    }
+
+    public long getBytesRead() {
+        return source.position;
+    }
+
+    private static void checkNotInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted while waiting on pipe");
+        }
+    }
+
+    private static void unpark(Thread thread) {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private class Source extends InputStream implements ReadableByteChannel {
+
+        private volatile long position = 0;
+        private volatile boolean closed = false;
+        private volatile Thread waiter;
+
+        private long cachedSinkPosition = 0;
+
+        @Override
+        public int read() throws IOException {
+            if (awaitAvailable() == 0) {
+                return -1;
+            }
+
+            final long readPosition = position;
+            final int b = buffer[(int) readPosition & mask] & 0xff;
+            position = readPosition + 1;
+            unpark(sink.waiter);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkNotNull(b);
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            } else if (len == 0) {
+                return 0;
+            }
+
+            final int available = awaitAvailable();
+            if (available == 0) {
+                return -1;
+            }
+
+            final long readPosition = position;
+            final int bytesToRead = Math.min(available, len);
+            final int index = (int) readPosition & mask;
+            final int firstChunk = Math.min(bytesToRead, buffer.length - index);
+            System.arraycopy(buffer, index, b, off, firstChunk);
+            System.arraycopy(buffer, 0, b, off + firstChunk, bytesToRead - firstChunk);
+            position = readPosition + bytesToRead;
+            unpark(sink.waiter);
+            return bytesToRead;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            if (!dst.hasRemaining()) {
+                return 0;
+            }
+
+            final int available = awaitAvailable();
+            if (available == 0) {
+                return -1;
+            }
+
+            final long readPosition = position;
+            final int bytesToRead = Math.min(available, dst.remaining());
+            final int index = (int) readPosition & mask;
+            final int firstChunk = Math.min(bytesToRead, buffer.length - index);
+            dst.put(buffer, index, firstChunk);
+            dst.put(buffer, 0, bytesToRead - firstChunk);
+            position = readPosition + bytesToRead;
+            unpark(sink.waiter);
+            return bytesToRead;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (closed) {
+                throw new IOException("Pipe closed");
+            }
+            return (int) (sink.position - position);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            unpark(sink.waiter);
+        }
+
+        // Returns the number of bytes that can be read without blocking, or 0 if the sink is closed and drained
+        private int awaitAvailable() throws IOException {
+            while (true) {
+                if (closed) {
+                    throw new IOException("Pipe closed");
+                }
+
+                if (cachedSinkPosition == position) {
+                    cachedSinkPosition = sink.position;
+                }
+                if (cachedSinkPosition != position) {
+                    return (int) (cachedSinkPosition - position);
+                }
+
+                if (sink.closed) {
+                    // The sink publishes its last position before closing, so a final check settles it
+                    cachedSinkPosition = sink.position;
+                    if (cachedSinkPosition == position && !closed) {
+                        return 0;
+                    } else {
+                        continue;
+                    }
+                }
+
+                checkNotInterrupted();
+                waiter = Thread.currentThread();
+                if (sink.position == position && !sink.closed && !closed) {
+                    LockSupport.park(this);
+                }
+                waiter = null;
+            }
+        }
+    }
+
+    private class Sink extends OutputStream implements WritableByteChannel {
+
+        private volatile long position = 0;
+        private volatile boolean closed = false;
+        private volatile Thread waiter;
+
+        private long cachedSourcePosition = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            awaitFree();
+            final long writePosition = position;
+            buffer[(int) writePosition & mask] = (byte) b;
+            position = writePosition + 1;
+            unpark(source.waiter);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkNotNull(b);
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+
+            while (len > 0) {
+                final int free = awaitFree();
+                final long writePosition = position;
+                final int bytesToWrite = Math.min(free, len);
+                final int index = (int) writePosition & mask;
+                final int firstChunk = Math.min(bytesToWrite, buffer.length - index);
+                System.arraycopy(b, off, buffer, index, firstChunk);
+                System.arraycopy(b, off + firstChunk, buffer, 0, bytesToWrite - firstChunk);
+                position = writePosition + bytesToWrite;
+                unpark(source.waiter);
+
+                off += bytesToWrite;
+                len -= bytesToWrite;
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            final int bytesToWrite = src.remaining();
+            while (src.hasRemaining()) {
+                final int free = awaitFree();
+                final long writePosition = position;
+                final int chunk = Math.min(free, src.remaining());
+                final int index = (int) writePosition & mask;
+                final int firstChunk = Math.min(chunk, buffer.length - index);
+                src.get(buffer, index, firstChunk);
+                src.get(buffer, 0, chunk - firstChunk);
+                position = writePosition + chunk;
+                unpark(source.waiter);
+            }
+            return bytesToWrite;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            unpark(source.waiter);
+        }
+
+        // Returns the number of bytes that can be written without blocking
+        private int awaitFree() throws IOException {
+            while (true) {
+                if (closed) {
+                    throw new IOException("Pipe closed");
+                } else if (source.closed) {
+                    throw new BrokenPipeException();
+                }
+
+                if (position - cachedSourcePosition == buffer.length) {
+                    cachedSourcePosition = source.position;
+                }
+                if (position - cachedSourcePosition < buffer.length) {
+                    return (int) (buffer.length - (position - cachedSourcePosition));
+                }
+
+                checkNotInterrupted();
+                waiter = Thread.currentThread();
+                if (position - source.position == buffer.length && !source.closed) {
+                    LockSupport.park(this);
+                }
+                waiter = null;
+            }
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package no.nixx.aslan.core;
+
+import no.nixx.aslan.core.utils.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * A pipeline that has been started, along with the pipelines of its command substitutions. Cancelling it closes all
+ * of its pipes, so stages blocked on them fail right away, and interrupts the threads running its stages, so those
+ * waiting for anything else stop too. The result then completes as soon as the stages have ended, with the stages
+ * that did not finish on their own given the exit status {@link #CANCELLED_EXIT_STATUS}.
+ */
+public class PipelineExecution {
+
+    // The exit status of a process stopped by SIGINT in bash
+    public static final int CANCELLED_EXIT_STATUS = 128 + 2;
+
+    private final CompletableFuture<PipelineResult> result;
+    private final CancellationToken cancellationToken = new CancellationToken();
+    private final List<Pipe> pipes = new ArrayList<>();
+    private final Set<Thread> stageThreads = new HashSet<>();
+
+    PipelineExecution(CompletableFuture<PipelineResult> result) {
+        this.result = checkNotNull(result);
+    }
+
+    public CompletableFuture<PipelineResult> getResult() {
+        return result;
+    }
+
+    public boolean isCancelled() {
+        return cancellationToken.isCancelled();
+    }
+
+    public synchronized void cancel() {
+        if (isCancelled()) {
+            return;
+        }
+
+        // The pipes are closed from the last stage back, so a stage that ends when its input is closed can not close
+        // its output before the stage reading it has had its pipe closed, and have that stage take it for the end
+        cancellationToken.cancel();
+        for (int i = pipes.size() - 1; i >= 0; i--) {
+            pipes.get(i).close();
+        }
+        pipes.clear();
+        stageThreads.forEach(Thread::interrupt);
+    }
+
+    // Pipes added after the execution has been cancelled are closed right away
+    synchronized void addPipe(Pipe pipe) {
+        if (isCancelled()) {
+            pipe.close();
+        } else {
+            pipes.add(pipe);
+        }
+    }
+
+    synchronized void stageStarted() {
+        stageThreads.add(Thread.currentThread());
+        if (isCancelled()) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Clears the interrupt of a cancelled stage, so it does not carry over to the next task of a pooled thread
+    synchronized void stageFinished() {
+        stageThreads.remove(Thread.currentThread());
+        Thread.interrupted();
+    }
+}
@@ -2,6 +2,33 @@ package no.nixx.aslan.core;
 
 import no.nixx.aslan.pipeline.model.Pipeline;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 public interface PipelineExecutor {
-    void execute(Pipeline pipeline);
+
+    /**
+     * Starts the pipeline and returns without waiting for it. Its result completes when every stage has finished, or
+     * exceptionally if the pipeline could not be started, like when a command is not found.
+     */
+    PipelineExecution start(Pipeline pipeline);
+
+    default CompletableFuture<PipelineResult> executeAsync(Pipeline pipeline) {
+        return start(pipeline).getResult();
+    }
+
+    /**
+     * Runs the pipeline and waits for it to finish.
+     */
+    default PipelineResult execute(Pipeline pipeline) {
+        try {
+            return executeAsync(pipeline).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw e;
+            }
+        }
+    }
 }
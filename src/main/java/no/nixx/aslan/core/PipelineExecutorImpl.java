@@ -3,6 +3,7 @@ package no.nixx.aslan.core;
 import no.nixx.aslan.api.Executable;
 import no.nixx.aslan.api.ExecutionContext;
 import no.nixx.aslan.api.Program;
+import no.nixx.aslan.core.executables.shellutils.Time;
 import no.nixx.aslan.pipeline.model.Argument;
 import no.nixx.aslan.pipeline.model.Command;
 import no.nixx.aslan.pipeline.model.CommandSubstitution;
@@ -14,15 +15,29 @@ import no.nixx.aslan.pipeline.model.VariableSubstitution;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
-
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static no.nixx.aslan.core.BrokenPipeException.isCausedByBrokenPipe;
 import static no.nixx.aslan.core.utils.ListUtils.firstOf;
 import static no.nixx.aslan.core.utils.ListUtils.lastOf;
 import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
@@ -30,30 +45,88 @@ import static no.nixx.aslan.core.utils.StringUtils.removeTrailingNewlines;
 
 public class PipelineExecutorImpl implements PipelineExecutor {
 
-    final ExecutorService threadPool;
+    // The exit status of a process killed by SIGPIPE in bash
+    public static final int BROKEN_PIPE_EXIT_STATUS = 128 + 13;
+
+    static final int MAX_PARALLEL_SUBSTITUTIONS = Math.max(4, Runtime.getRuntime().availableProcessors());
+
+    final StageScheduler stageScheduler;
     final ExecutableLocator executableLocator;
     final ExecutionContextFactory executionContextFactory;
     final PrintStream defaultErrorStream;
     private final InputStream defaultInputStream;
     private final OutputStream defaultOutputStream;
+    private final int pipeCapacity;
+    private final Semaphore substitutionPermits = new Semaphore(MAX_PARALLEL_SUBSTITUTIONS);
 
     public PipelineExecutorImpl(ExecutorService threadPool, ExecutableLocator executableLocator, ExecutionContextFactory executionContextFactory, InputStream defaultInputStream, OutputStream defaultOutputStream, OutputStream defaultErrorStream) {
-        this.threadPool = threadPool;
+        this(threadPool, executableLocator, executionContextFactory, defaultInputStream, defaultOutputStream, defaultErrorStream, Pipe.DEFAULT_CAPACITY);
+    }
+
+    public PipelineExecutorImpl(ExecutorService threadPool, ExecutableLocator executableLocator, ExecutionContextFactory executionContextFactory, InputStream defaultInputStream, OutputStream defaultOutputStream, OutputStream defaultErrorStream, int pipeCapacity) {
+        this(new ThreadPoolStageScheduler(threadPool), executableLocator, executionContextFactory, defaultInputStream, defaultOutputStream, defaultErrorStream, pipeCapacity);
+    }
+
+    public PipelineExecutorImpl(StageScheduler stageScheduler, ExecutableLocator executableLocator, ExecutionContextFactory executionContextFactory, InputStream defaultInputStream, OutputStream defaultOutputStream, OutputStream defaultErrorStream) {
+        this(stageScheduler, executableLocator, executionContextFactory, defaultInputStream, defaultOutputStream, defaultErrorStream, Pipe.DEFAULT_CAPACITY);
+    }
+
+    public PipelineExecutorImpl(StageScheduler stageScheduler, ExecutableLocator executableLocator, ExecutionContextFactory executionContextFactory, InputStream defaultInputStream, OutputStream defaultOutputStream, OutputStream defaultErrorStream, int pipeCapacity) {
+        this.stageScheduler = stageScheduler;
         this.executableLocator = executableLocator;
         this.executionContextFactory = executionContextFactory;
         this.defaultInputStream = defaultInputStream;
         this.defaultOutputStream = defaultOutputStream;
         this.defaultErrorStream = new PrintStream(defaultErrorStream);
+        this.pipeCapacity = pipeCapacity;
     }
 
+    // The arguments are expanded on a stage of their own, as command substitutions run pipelines and wait for them.
+    // With a bounded scheduler the caller expands them instead, since the waiting could hold on to the threads that the
+    // stages of the substitutions need.
     @Override
-    public void execute(Pipeline pipeline) {
-        final ExecutionContext executionContextForExpansion = executionContextFactory.createExecutionContext(defaultInputStream, defaultOutputStream, defaultErrorStream);
-        final Pipeline pipelineWithExpandedArguments = expandArguments(executionContextForExpansion, pipeline);
-        executePipeline(pipelineWithExpandedArguments, defaultInputStream, defaultOutputStream);
+    public PipelineExecution start(Pipeline pipeline) {
+        final long startTime = System.nanoTime();
+        final CompletableFuture<PipelineResult> result = new CompletableFuture<>();
+        final PipelineExecution execution = new PipelineExecution(result);
+        final Runnable expandAndStart = () -> {
+            try {
+                final ExecutionContext executionContextForExpansion = executionContextFactory.createExecutionContext(defaultInputStream, defaultOutputStream, defaultErrorStream);
+                final Pipeline pipelineWithExpandedArguments = expandArguments(execution, executionContextForExpansion, pipeline);
+                startPipeline(execution, pipelineWithExpandedArguments, defaultInputStream, defaultOutputStream, startTime).whenComplete((pipelineResult, t) -> {
+                    if (t == null) {
+                        if (!pipeline.isBackground()) {
+                            setStatusVariables(pipelineResult);
+                        }
+                        result.complete(pipelineResult);
+                    } else {
+                        result.completeExceptionally(t);
+                    }
+                });
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        };
+
+        if (stageScheduler.isBounded()) {
+            expandAndStart.run();
+        } else {
+            stageScheduler.start(expandAndStart);
+        }
+        return execution;
     }
 
-    private Pipeline expandArguments(ExecutionContext context, Pipeline pipeline) {
+    // Like in bash, EXITSTATUS is the exit status of the last stage and PIPESTATUS those of all stages. Pipelines run
+    // by command substitutions and in the background leave them as they are.
+    // (ref. http://unix.stackexchange.com/questions/14270/get-exit-status-of-process-thats-piped-to-another)
+    private void setStatusVariables(PipelineResult pipelineResult) {
+        final ShellUtilExecutionContext context = executionContextFactory.createShellUtilExecutionContext(defaultInputStream, defaultOutputStream, defaultErrorStream);
+        context.setVariable("EXITSTATUS", String.valueOf(pipelineResult.getExitStatus()));
+        context.setVariable("PIPESTATUS", pipelineResult.getPipeStatus());
+    }
+
+    private Pipeline expandArguments(PipelineExecution execution, ExecutionContext context, Pipeline pipeline) {
+        final Map<CommandSubstitution, CompletableFuture<String>> substitutions = startCommandSubstitutions(execution, context, pipeline);
         final ArrayList<Command> expandedCommands = new ArrayList<>();
         for (Command command : pipeline.getCommands()) {
             final ArrayList<Argument> expandedArguments = new ArrayList<>();
@@ -62,13 +135,13 @@ public class PipelineExecutorImpl implements PipelineExecutor {
                 if (argument.isRenderable()) {
                     expandedArgument = new ExpandedArgument(argument.getRenderedText());
                 } else if (argument.isCompositeArgument()) {
-                    expandedArgument = new ExpandedArgument(getString(context, (CompositeArgument) argument));
+                    expandedArgument = new ExpandedArgument(getString(execution, context, substitutions, (CompositeArgument) argument));
                 } else if (argument.isCommandSubstitution()) {
-                    expandedArgument = new ExpandedArgument(getString(context, (CommandSubstitution) argument));
+                    expandedArgument = new ExpandedArgument(getString(execution, context, substitutions, (CommandSubstitution) argument));
                 } else if (argument.isVariableSubstitution()) {
                     expandedArgument = new ExpandedArgument(getString(context, (VariableSubstitution) argument));
                 } else if (argument.isQuotedString()) {
-                    expandedArgument = new ExpandedArgument(getString(context, (QuotedString) argument));
+                    expandedArgument = new ExpandedArgument(getString(execution, context, substitutions, (QuotedString) argument));
                 } else {
                     throw new IllegalStateException("What's this?");
                 }
@@ -80,11 +153,83 @@ public class PipelineExecutorImpl implements PipelineExecutor {
         return new Pipeline(expandedCommands);
     }
 
+    // Expands the command substitutions of the pipeline in parallel, at most MAX_PARALLEL_SUBSTITUTIONS at a time. When
+    // all permits are taken the caller expands the next substitution itself. Nested substitutions are expanded before
+    // the substitution they are part of, as part of expanding it. Failures are rethrown when the arguments are built.
+    private Map<CommandSubstitution, CompletableFuture<String>> startCommandSubstitutions(PipelineExecution execution, ExecutionContext context, Pipeline pipeline) {
+        final List<CommandSubstitution> commandSubstitutions = getCommandSubstitutions(pipeline);
+        if (commandSubstitutions.size() < 2 || stageScheduler.isBounded() || commandSubstitutions.stream().anyMatch(this::mayHaveSideEffects)) {
+            return emptyMap();
+        }
+
+        final Map<CommandSubstitution, CompletableFuture<String>> substitutions = new IdentityHashMap<>();
+        for (CommandSubstitution cs : commandSubstitutions) {
+            final CompletableFuture<String> future = new CompletableFuture<>();
+            substitutions.put(cs, future);
+            if (substitutionPermits.tryAcquire()) {
+                stageScheduler.start(() -> {
+                    try {
+                        expandCommandSubstitution(execution, context, cs, future);
+                    } finally {
+                        substitutionPermits.release();
+                    }
+                });
+            } else {
+                expandCommandSubstitution(execution, context, cs, future);
+            }
+        }
+        return substitutions;
+    }
+
+    private void expandCommandSubstitution(PipelineExecution execution, ExecutionContext context, CommandSubstitution cs, CompletableFuture<String> future) {
+        try {
+            future.complete(getExpandedCommand(execution, expandArguments(execution, context, cs.getPipeline())));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    private List<CommandSubstitution> getCommandSubstitutions(Pipeline pipeline) {
+        final List<CommandSubstitution> commandSubstitutions = new ArrayList<>();
+        for (Command command : pipeline.getCommands()) {
+            for (Argument argument : command.getArguments()) {
+                addCommandSubstitutions(argument, commandSubstitutions);
+            }
+        }
+        return commandSubstitutions;
+    }
+
+    private void addCommandSubstitutions(Argument argument, List<CommandSubstitution> commandSubstitutions) {
+        if (argument.isCommandSubstitution()) {
+            commandSubstitutions.add((CommandSubstitution) argument);
+        } else if (argument.isCompositeArgument()) {
+            ((CompositeArgument) argument).forEach(arg -> addCommandSubstitutions(arg, commandSubstitutions));
+        } else if (argument.isQuotedString()) {
+            ((QuotedString) argument).getComponents().forEach(component -> addCommandSubstitutions(component.argument, commandSubstitutions));
+        }
+    }
+
+    // Shell utils change the state of the shell, which the other substitutions might depend on, so substitutions
+    // running them or running executables that are not known up front are expanded one by one and in order
+    private boolean mayHaveSideEffects(CommandSubstitution cs) {
+        for (Command command : cs.getPipeline().getCommands()) {
+            if (command.getArguments().isEmpty()) {
+                continue;
+            }
+
+            final Argument executableName = firstOf(command.getArguments());
+            if (!executableName.isRenderable() || executableLocator.lookupExecutable(executableName.getRenderedText()) instanceof ShellUtil) {
+                return true;
+            }
+        }
+        return getCommandSubstitutions(cs.getPipeline()).stream().anyMatch(this::mayHaveSideEffects);
+    }
+
     private String getString(Literal literal) {
         return literal.text;
     }
 
-    private String getString(ExecutionContext context, QuotedString quotedString) {
+    private String getString(PipelineExecution execution, ExecutionContext context, Map<CommandSubstitution, CompletableFuture<String>> substitutions, QuotedString quotedString) {
         final StringBuilder sb = new StringBuilder(quotedString.getText());
 
         int offset = 0;
@@ -95,8 +240,7 @@ public class PipelineExecutorImpl implements PipelineExecutor {
                 expandedComponentText = getExpandedVariable(context, vs);
             } else if (component.argument.isCommandSubstitution()) {
                 final CommandSubstitution cs = (CommandSubstitution) component.argument;
-                final Pipeline expandedPipeline = expandArguments(context, cs.getPipeline());
-                expandedComponentText = getExpandedCommand(expandedPipeline);
+                expandedComponentText = getString(execution, context, substitutions, cs);
             } else {
                 throw new IllegalStateException("Illegal component type, expected VariableSubstitution or CommandSubstitution: " + component.argument);
             }
@@ -112,22 +256,35 @@ public class PipelineExecutorImpl implements PipelineExecutor {
         return getExpandedVariable(context, vs);
     }
 
-    private String getString(ExecutionContext context, CommandSubstitution cs) {
-        final Pipeline expandedPipeline = expandArguments(context, cs.getPipeline());
-        return getExpandedCommand(expandedPipeline);
+    private String getString(PipelineExecution execution, ExecutionContext context, Map<CommandSubstitution, CompletableFuture<String>> substitutions, CommandSubstitution cs) {
+        final CompletableFuture<String> startedSubstitution = substitutions.get(cs);
+        if (startedSubstitution == null) {
+            final Pipeline expandedPipeline = expandArguments(execution, context, cs.getPipeline());
+            return getExpandedCommand(execution, expandedPipeline);
+        }
+
+        try {
+            return startedSubstitution.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else {
+                throw e;
+            }
+        }
     }
 
-    private String getString(ExecutionContext context, CompositeArgument compositeArgument) {
+    private String getString(PipelineExecution execution, ExecutionContext context, Map<CommandSubstitution, CompletableFuture<String>> substitutions, CompositeArgument compositeArgument) {
         final StringBuilder sb = new StringBuilder();
         for (Argument arg : compositeArgument) {
             if (arg.isLiteral()) {
                 sb.append(getString((Literal) arg));
             } else if (arg.isCommandSubstitution()) {
-                sb.append(getString(context, (CommandSubstitution) arg));
+                sb.append(getString(execution, context, substitutions, (CommandSubstitution) arg));
             } else if (arg.isVariableSubstitution()) {
                 sb.append(getString(context, (VariableSubstitution) arg));
             } else if (arg.isQuotedString()) {
-                sb.append(getString(context, (QuotedString) arg));
+                sb.append(getString(execution, context, substitutions, (QuotedString) arg));
             } else if (arg.isCompositeArgument()) {
                 throw new IllegalStateException("Directly nested composite arguments should not be possible, this is a bug.");
             }
@@ -139,42 +296,54 @@ public class PipelineExecutorImpl implements PipelineExecutor {
         return context.getVariable(vs.variableName);
     }
 
-    private String getExpandedCommand(Pipeline pipeline) {
+    private String getExpandedCommand(PipelineExecution execution, Pipeline pipeline) {
         final InputStream in = new ByteArrayInputStream(new byte[0]);
         final ByteArrayOutputStream out = new ByteArrayOutputStream();
-        executePipeline(pipeline, in, out);
+        startPipeline(execution, pipeline, in, out, System.nanoTime()).join();
 
         return removeTrailingNewlines(out.toString());
     }
 
-    private void executePipeline(Pipeline pipeline, InputStream outerInputStream, OutputStream outerOutputStream) {
-        final List<ExecutableWithExecutionContextAndArgs> executables = new ArrayList<>();
-
-        final List<Command> commands = pipeline.getCommands();
-        if (commands.isEmpty()) {
-            return;
+    // Starts the stages of the pipeline, and completes the returned future when the last of them has finished. A
+    // pipeline starting with "time" is run without it, and its timings are printed to the error stream at the end.
+    private CompletableFuture<PipelineResult> startPipeline(PipelineExecution execution, Pipeline pipeline, InputStream outerInputStream, OutputStream outerOutputStream, long startTime) {
+        final boolean isTimed = isTimed(pipeline);
+        final List<Command> commands = isTimed ? removeTime(pipeline.getCommands()) : pipeline.getCommands();
+        if (commands.isEmpty() || execution.isCancelled()) {
+            return CompletableFuture.completedFuture(new PipelineResult(emptyList(), System.nanoTime() - startTime, execution.isCancelled()));
         }
 
+        final CountingInputStream countingInputStream = new CountingInputStream(outerInputStream);
+        final CountingOutputStream countingOutputStream = new CountingOutputStream(outerOutputStream);
+
         final Command first = firstOf(commands);
         final Command last = lastOf(commands);
 
-        Pipe pipe = new Pipe();
+        final List<Stage> stages = new ArrayList<>();
+        Pipe pipe = createPipe(execution);
         for (Command command : commands) {
             final InputStream in;
             final OutputStream out;
-            if (command == first && command == last) {
-                in = outerInputStream;
-                out = outerOutputStream;
-            } else if (command == first) {
-                in = outerInputStream;
-                out = pipe.getSink();
-            } else if (command == last) {
-                in = pipe.getSource();
-                out = outerOutputStream;
+            final LongSupplier bytesRead;
+            final LongSupplier bytesWritten;
+            if (command == first) {
+                in = countingInputStream;
+                bytesRead = countingInputStream::getCount;
+            } else {
+                final Pipe inputPipe = pipe;
+                in = inputPipe.getSource();
+                bytesRead = inputPipe::getBytesRead;
+                if (command != last) {
+                    pipe = createPipe(execution);
+                }
+            }
+            if (command == last) {
+                out = countingOutputStream;
+                bytesWritten = countingOutputStream::getCount;
             } else {
-                in = pipe.getSource();
-                pipe = new Pipe();
-                out = pipe.getSink();
+                final Pipe outputPipe = pipe;
+                out = outputPipe.getSink();
+                bytesWritten = outputPipe::getBytesWritten;
             }
 
             final Executable executable = executableLocator.lookupExecutable(command.getExecutableName());
@@ -183,32 +352,49 @@ public class PipelineExecutorImpl implements PipelineExecutor {
             }
             if (executable instanceof ShellUtil) {
                 final ShellUtilExecutionContext context = executionContextFactory.createShellUtilExecutionContext(in, out, defaultErrorStream);
-                executables.add(new ExecutableWithExecutionContextAndArgs(executable, context, command.getRenderedArguments()));
+                stages.add(new Stage(executable, context, command.getRenderedArguments(), bytesRead, bytesWritten));
             } else {
                 final ExecutionContext context = executionContextFactory.createExecutionContext(in, out, defaultErrorStream);
-                executables.add(new ExecutableWithExecutionContextAndArgs(executable, context, command.getRenderedArguments()));
+                stages.add(new Stage(executable, context, command.getRenderedArguments(), bytesRead, bytesWritten));
             }
         }
 
-        final CountDownLatch latch = new CountDownLatch(executables.size());
-        for (final ExecutableWithExecutionContextAndArgs executableWithExecutionContextAndArgs : executables) {
-            threadPool.execute(() -> {
-                final Executable executable = executableWithExecutionContextAndArgs.executable;
-                final ExecutionContext executionContext = executableWithExecutionContextAndArgs.executionContext;
+        final CompletableFuture<PipelineResult> result = new CompletableFuture<>();
+        final StageResult[] stageResults = new StageResult[stages.size()];
+        final AtomicInteger remainingStages = new AtomicInteger(stages.size());
+        for (int stageIndex = 0; stageIndex < stages.size(); stageIndex++) {
+            final int index = stageIndex;
+            final Stage stage = stages.get(index);
+            stageScheduler.start(() -> {
+                final Executable executable = stage.executable;
+                final ExecutionContext executionContext = stage.executionContext;
                 final String executableName = getExecutableName(executable);
+                final long stageStartTime = System.nanoTime();
+                final long stageStartCpuTime = getCurrentThreadCpuTime();
+                int exitStatus = 1;
+                execution.stageStarted();
                 try {
                     if (executable instanceof Program) {
                         final Program program = (Program) executable;
-                        program.run(executionContext, executableWithExecutionContextAndArgs.args);
+                        program.run(executionContext, stage.args);
                     } else if (executable instanceof ShellUtil) {
                         final ShellUtil shellUtil = (ShellUtil) executable;
-                        shellUtil.run((ShellUtilExecutionContext) executionContext, executableWithExecutionContextAndArgs.args);
+                        shellUtil.run((ShellUtilExecutionContext) executionContext, stage.args);
                     } else {
                         throw new IllegalStateException("Unknown executable type: " + executable);
                     }
+                    exitStatus = executable.getExitStatus();
                 } catch (Throwable t) {
-                    // TODO: Direct logging output to logfile
-                    defaultErrorStream.println(executableName + ": " + t.getMessage());
+                    if (execution.isCancelled()) {
+                        // Failing is how stages react to their pipes being closed and their threads interrupted
+                        exitStatus = PipelineExecution.CANCELLED_EXIT_STATUS;
+                    } else if (isCausedByBrokenPipe(t)) {
+                        // The next stage is done with its input, so the stage is ended quietly, like by SIGPIPE
+                        exitStatus = BROKEN_PIPE_EXIT_STATUS;
+                    } else {
+                        // TODO: Direct logging output to logfile
+                        defaultErrorStream.println(executableName + ": " + t.getMessage());
+                    }
                 } finally {
                     try {
                         if (executionContext.input() != System.in) {
@@ -220,27 +406,65 @@ public class PipelineExecutorImpl implements PipelineExecutor {
                             executionContext.output().close();
                         }
 
+                        // The error stream is shared by the stages, and left open for the timings and the caller
                         defaultErrorStream.flush();
-                        if (defaultErrorStream != System.out) {
-                            defaultErrorStream.close();
-                        }
                     } catch (IOException e) {
-                        System.err.println("Unable to close streams: " + e.getMessage());
+                        if (!execution.isCancelled()) {
+                            System.err.println("Unable to close streams: " + e.getMessage());
+                        }
                     }
+                    execution.stageFinished();
+
+                    final long stageEndCpuTime = getCurrentThreadCpuTime();
+                    final long cpuTime = (stageStartCpuTime < 0 || stageEndCpuTime < 0) ? -1 : stageEndCpuTime - stageStartCpuTime;
 
-                    latch.countDown();
+                    // The decrement publishes the stage result to the stage that completes the pipeline result
+                    stageResults[index] = new StageResult(executableName, exitStatus, System.nanoTime() - stageStartTime, cpuTime, stage.bytesRead.getAsLong(), stage.bytesWritten.getAsLong());
+                    if (remainingStages.decrementAndGet() == 0) {
+                        final PipelineResult pipelineResult = new PipelineResult(asList(stageResults), System.nanoTime() - startTime, execution.isCancelled());
+                        if (isTimed) {
+                            pipelineResult.printTimings(defaultErrorStream);
+                        }
+                        result.complete(pipelineResult);
+                    }
                 }
             });
         }
 
-        try {
-            latch.await();
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
+        return result;
+    }
+
+    private Pipe createPipe(PipelineExecution execution) {
+        final Pipe pipe = new Pipe(pipeCapacity);
+        execution.addPipe(pipe);
+        return pipe;
+    }
+
+    private boolean isTimed(Pipeline pipeline) {
+        final List<Command> commands = pipeline.getCommands();
+        return !commands.isEmpty() && !firstOf(commands).getArguments().isEmpty() && executableLocator.lookupExecutable(firstOf(commands).getExecutableName()) instanceof Time;
+    }
+
+    private List<Command> removeTime(List<Command> commands) {
+        final Command first = firstOf(commands);
+        final List<Argument> arguments = first.getArguments();
+        if (arguments.size() == 1) {
+            throw new IllegalArgumentException("time: No command to time");
         }
 
-        // TODO: Consider setting the EXITSTATUS and PIPESTATUS variables here
-        // (ref. http://unix.stackexchange.com/questions/14270/get-exit-status-of-process-thats-piped-to-another)
+        final List<Command> commandsWithoutTime = new ArrayList<>(commands);
+        commandsWithoutTime.set(0, new Command(first, arguments.subList(1, arguments.size())));
+        return commandsWithoutTime;
+    }
+
+    // Virtual threads and some runtimes do not measure the CPU time of threads, in which case -1 is returned
+    private static long getCurrentThreadCpuTime() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+            return threadMXBean.getCurrentThreadCpuTime();
+        } else {
+            return -1;
+        }
     }
 
     private String getExecutableName(Executable executable) {
@@ -248,15 +472,105 @@ public class PipelineExecutorImpl implements PipelineExecutor {
         return metadata.name();
     }
 
-    private class ExecutableWithExecutionContextAndArgs {
+    // Counts the bytes read from the input of a pipeline. Like the stages, it leaves System.in open when closed.
+    private static class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int b = in.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            final int bytesRead = in.read(b, off, len);
+            if (bytesRead > 0) {
+                count += bytesRead;
+            }
+            return bytesRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            final long skipped = in.skip(n);
+            count += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (in != System.in) {
+                in.close();
+            }
+        }
+    }
+
+    // Counts the bytes written to the output of a pipeline. Like the stages, it leaves System.out open when closed.
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out == System.out) {
+                out.flush();
+            } else {
+                out.close();
+            }
+        }
+    }
+
+    private class Stage {
         public final Executable executable;
         public final ExecutionContext executionContext;
         private final List<String> args;
+        private final LongSupplier bytesRead;
+        private final LongSupplier bytesWritten;
 
-        ExecutableWithExecutionContextAndArgs(Executable executable, ExecutionContext executionContext, List<String> args) {
+        Stage(Executable executable, ExecutionContext executionContext, List<String> args, LongSupplier bytesRead, LongSupplier bytesWritten) {
             this.executable = executable;
             this.executionContext = executionContext;
             this.args = args;
+            this.bytesRead = bytesRead;
+            this.bytesWritten = bytesWritten;
         }
     }
 
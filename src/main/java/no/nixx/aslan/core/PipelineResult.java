@@ -0,0 +1,94 @@
+package no.nixx.aslan.core;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+import static no.nixx.aslan.core.utils.ListUtils.lastOf;
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+public class PipelineResult {
+    public final List<StageResult> stageResults;
+    public final long elapsedNanos;
+    public final boolean cancelled;
+
+    public PipelineResult(List<StageResult> stageResults, long elapsedNanos) {
+        this(stageResults, elapsedNanos, false);
+    }
+
+    public PipelineResult(List<StageResult> stageResults, long elapsedNanos, boolean cancelled) {
+        this.stageResults = unmodifiableList(checkNotNull(stageResults));
+        this.elapsedNanos = elapsedNanos;
+        this.cancelled = cancelled;
+    }
+
+    public List<Integer> getExitStatuses() {
+        return stageResults.stream().map(stageResult -> stageResult.exitStatus).collect(toList());
+    }
+
+    /**
+     * Returns the exit status of the last stage, or 0 for an empty pipeline. A pipeline cancelled before any of its
+     * stages were started has the exit status of a cancelled stage.
+     */
+    public int getExitStatus() {
+        if (stageResults.isEmpty()) {
+            return cancelled ? PipelineExecution.CANCELLED_EXIT_STATUS : 0;
+        } else {
+            return lastOf(stageResults).exitStatus;
+        }
+    }
+
+    /**
+     * Returns the exit statuses of the stages separated by spaces, like the PIPESTATUS variable of bash.
+     */
+    public String getPipeStatus() {
+        return getExitStatuses().stream().map(String::valueOf).collect(joining(" "));
+    }
+
+    /**
+     * Returns the number of bytes the last stage wrote to the output of the pipeline.
+     */
+    public long getBytesWritten() {
+        return stageResults.isEmpty() ? 0 : lastOf(stageResults).bytesWritten;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    /**
+     * Prints the elapsed time of the pipeline, followed by the exit status, times and bytes read and written of each
+     * stage. The stage with the most CPU time is usually the one holding the others back.
+     */
+    public void printTimings(PrintStream printStream) {
+        printStream.format("real %s%n", formatNanos(elapsedNanos));
+        printStream.format("%-12s %6s %10s %10s %12s %12s%n", "stage", "status", "wall", "cpu", "read", "written");
+        for (StageResult stageResult : stageResults) {
+            printStream.format("%-12s %6d %10s %10s %12d %12d%n",
+                    stageResult.name,
+                    stageResult.exitStatus,
+                    formatNanos(stageResult.wallNanos),
+                    stageResult.hasCpuTime() ? formatNanos(stageResult.cpuNanos) : "-",
+                    stageResult.bytesRead,
+                    stageResult.bytesWritten);
+        }
+        printStream.flush();
+    }
+
+    private static String formatNanos(long nanos) {
+        return String.format(Locale.ROOT, "%.3fs", nanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineResult{" +
+                "stageResults=" + stageResults +
+                ", elapsedNanos=" + elapsedNanos +
+                ", cancelled=" + cancelled +
+                '}';
+    }
+}
@@ -10,4 +10,6 @@ public interface ShellUtilExecutionContext extends ExecutionContext {
 
     void unsetVariable(String name);
 
+    JobTable getJobTable();
+
 }
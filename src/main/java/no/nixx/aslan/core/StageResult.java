@@ -0,0 +1,38 @@
+package no.nixx.aslan.core;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+public class StageResult {
+    public final String name;
+    public final int exitStatus;
+    public final long wallNanos;
+    // -1 when the runtime cannot measure the CPU time of the thread running the stage
+    public final long cpuNanos;
+    public final long bytesRead;
+    public final long bytesWritten;
+
+    public StageResult(String name, int exitStatus, long wallNanos, long cpuNanos, long bytesRead, long bytesWritten) {
+        this.name = checkNotNull(name);
+        this.exitStatus = exitStatus;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+    }
+
+    public boolean hasCpuTime() {
+        return cpuNanos >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return "StageResult{" +
+                "name='" + name + '\'' +
+                ", exitStatus=" + exitStatus +
+                ", wallNanos=" + wallNanos +
+                ", cpuNanos=" + cpuNanos +
+                ", bytesRead=" + bytesRead +
+                ", bytesWritten=" + bytesWritten +
+                '}';
+    }
+}
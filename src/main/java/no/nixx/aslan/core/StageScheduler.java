@@ -0,0 +1,32 @@
+package no.nixx.aslan.core;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Starts the stages of a pipeline. The stages are connected by pipes and block on each other, so a scheduler must run
+ * every stage it is given concurrently with the others, and never hold one back until another has finished.
+ */
+public interface StageScheduler {
+
+    void start(Runnable stage);
+
+    /**
+     * Returns true if the scheduler can only run a limited number of stages at a time. Work that multiplies the number
+     * of stages running at once, like expanding several command substitutions in parallel, is left out then.
+     */
+    default boolean isBounded() {
+        return false;
+    }
+
+    /**
+     * Returns a scheduler that runs each stage on its own virtual thread when the runtime supports them, and on the
+     * given thread pool otherwise.
+     */
+    static StageScheduler preferVirtualThreads(ExecutorService fallback) {
+        if (VirtualThreadStageScheduler.isSupported()) {
+            return new VirtualThreadStageScheduler();
+        } else {
+            return new ThreadPoolStageScheduler(fallback);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package no.nixx.aslan.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * Runs the stages on a thread pool. A pool with a fixed number of threads can only run pipelines with up to that many
+ * stages, as the stages that do not get a thread wait for those that do to finish, which in turn wait for their input.
+ */
+public class ThreadPoolStageScheduler implements StageScheduler {
+
+    private final ExecutorService threadPool;
+
+    public ThreadPoolStageScheduler(ExecutorService threadPool) {
+        this.threadPool = checkNotNull(threadPool);
+    }
+
+    @Override
+    public void start(Runnable stage) {
+        threadPool.execute(stage);
+    }
+
+    @Override
+    public boolean isBounded() {
+        return !(threadPool instanceof ThreadPoolExecutor) || ((ThreadPoolExecutor) threadPool).getMaximumPoolSize() != Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,49 @@
+package no.nixx.aslan.core;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+
+import static java.lang.invoke.MethodType.methodType;
+
+/**
+ * Runs each stage on a new virtual thread. Virtual threads are cheap to create and release their carrier thread
+ * while blocked on a pipe, so pipelines can have any number of stages. They are looked up reflectively since the
+ * shell is still built for Java 8, and are only available on Java 21 and later.
+ */
+public class VirtualThreadStageScheduler implements StageScheduler {
+
+    private static final MethodHandle startVirtualThread = lookupStartVirtualThread();
+
+    public VirtualThreadStageScheduler() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this runtime");
+        }
+    }
+
+    public static boolean isSupported() {
+        return startVirtualThread != null;
+    }
+
+    @Override
+    public void start(Runnable stage) {
+        try {
+            startVirtualThread.invoke(stage);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    // Java 19 and 20 have the method, but it fails unless preview features are enabled, so try it out once
+    private static MethodHandle lookupStartVirtualThread() {
+        try {
+            final MethodHandle methodHandle = MethodHandles.publicLookup().findStatic(Thread.class, "startVirtualThread", methodType(Thread.class, Runnable.class));
+            methodHandle.invoke((Runnable) () -> {
+            });
+            return methodHandle;
+        } catch (Throwable t) {
+            return null;
+        }
+    }
+}
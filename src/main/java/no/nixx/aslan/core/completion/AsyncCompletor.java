@@ -0,0 +1,42 @@
+package no.nixx.aslan.core.completion;
+
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.core.ExecutableLocator;
+import no.nixx.aslan.core.utils.CancellationToken;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * Finds completions on an executor instead of the calling thread. Only the latest request is of interest: starting a
+ * new one cancels the one before it, and the cancelled request stops at the next point where the Completor checks for
+ * cancellation. The future of a cancelled request completes exceptionally with a CancellationException.
+ */
+public class AsyncCompletor {
+
+    private final Completor completor;
+    private final Executor executor;
+
+    private CancellationToken pendingRequest;
+
+    public AsyncCompletor(Completor completor, Executor executor) {
+        this.completor = checkNotNull(completor);
+        this.executor = checkNotNull(executor);
+    }
+
+    public synchronized CompletableFuture<CompletionResult> getCompletions(String command, int tabPosition, ExecutableLocator executableLocator, ExecutionContext executionContext) {
+        cancel();
+        final CancellationToken cancellationToken = new CancellationToken();
+        pendingRequest = cancellationToken;
+        return CompletableFuture.supplyAsync(() -> completor.getCompletions(command, tabPosition, executableLocator, executionContext, cancellationToken), executor);
+    }
+
+    public synchronized void cancel() {
+        if (pendingRequest != null) {
+            pendingRequest.cancel();
+            pendingRequest = null;
+        }
+    }
+}
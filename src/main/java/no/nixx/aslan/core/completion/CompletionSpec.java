@@ -9,6 +9,7 @@ public abstract class CompletionSpec {
 
     private final List<CompletionSpec> children;
     private CompletionSpec parent;
+    private int depth;
 
     public CompletionSpec(CompletionSpec... children) {
         this.children = unmodifiableList(asList(children));
@@ -44,11 +45,19 @@ public abstract class CompletionSpec {
 
     public void setParent(CompletionSpec parent) {
         this.parent = parent;
+        this.depth = parent.depth + 1;
         for (CompletionSpec child : this.children) {
             child.setParent(this);
         }
     }
 
+    /**
+     * Returns the number of ancestors of this spec, which is kept up to date as the tree is built.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
     public List<CompletionSpec> getChildren() {
         return children;
     }
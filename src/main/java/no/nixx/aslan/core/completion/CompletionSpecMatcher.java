@@ -0,0 +1,83 @@
+package no.nixx.aslan.core.completion;
+
+import no.nixx.aslan.core.utils.CancellationToken;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches the arguments of one completion request against a completion spec tree. Matching can be expensive, like
+ * reading the file system for a path, so each spec is asked at most once whether it matches a given argument. The
+ * results are only valid for the duration of the request, which is given up between two specs if it is cancelled.
+ */
+class CompletionSpecMatcher {
+
+    private final List<CompletionSpec> specs = new ArrayList<>();
+    private final List<String> precedingArguments;
+    private final CancellationToken cancellationToken;
+    private final Map<CompletionSpec, Map<String, Boolean>> partialMatches = new IdentityHashMap<>();
+    private final Map<CompletionSpec, Map<String, Boolean>> completeMatches = new IdentityHashMap<>();
+
+    CompletionSpecMatcher(CompletionSpecRoot root, List<String> precedingArguments) {
+        this(root, precedingArguments, new CancellationToken());
+    }
+
+    CompletionSpecMatcher(CompletionSpecRoot root, List<String> precedingArguments, CancellationToken cancellationToken) {
+        this.precedingArguments = precedingArguments;
+        this.cancellationToken = cancellationToken;
+        addDescendants(root);
+    }
+
+    List<CompletionSpec> findMatchingNodes(String argument, boolean findCompleteMatches) {
+        final List<CompletionSpec> matches = new ArrayList<>();
+        for (CompletionSpec spec : specs) {
+            if (findCompleteMatches ? isCompleteMatch(spec, argument) : isPartialMatch(spec, argument)) {
+                matches.add(spec);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Returns true if the spec and all its ancestors are matched by the preceding arguments, in order.
+     */
+    boolean hasCompleteAncestry(CompletionSpec completionSpec) {
+        CompletionSpec spec = completionSpec;
+        int remainingArguments = precedingArguments.size();
+        while (!(spec instanceof CompletionSpecRoot)) {
+            if (remainingArguments == 0) {
+                return false;
+            }
+
+            if (isCompleteMatch(spec, precedingArguments.get(--remainingArguments))) {
+                spec = spec.getParent();
+            }
+        }
+        return true;
+    }
+
+    boolean isPartialMatch(CompletionSpec spec, String argument) {
+        cancellationToken.throwIfCancelled();
+        return partialMatches.computeIfAbsent(spec, s -> new HashMap<>()).computeIfAbsent(argument, spec::isPartialMatch);
+    }
+
+    boolean isCompleteMatch(CompletionSpec spec, String argument) {
+        cancellationToken.throwIfCancelled();
+        return completeMatches.computeIfAbsent(spec, s -> new HashMap<>()).computeIfAbsent(argument, spec::isCompleteMatch);
+    }
+
+    List<String> getCompletions(CompletionSpec spec, String argument) {
+        cancellationToken.throwIfCancelled();
+        return spec.getCompletions(argument);
+    }
+
+    private void addDescendants(CompletionSpec spec) {
+        for (CompletionSpec child : spec.getChildren()) {
+            specs.add(child);
+            addDescendants(child);
+        }
+    }
+}
@@ -3,7 +3,9 @@ package no.nixx.aslan.core.completion;
 import no.nixx.aslan.api.Executable;
 import no.nixx.aslan.api.ExecutionContext;
 import no.nixx.aslan.core.ExecutableLocator;
+import no.nixx.aslan.core.utils.CancellationToken;
 import no.nixx.aslan.core.utils.Preconditions;
+import no.nixx.aslan.pipeline.IncrementalPipelineParser;
 import no.nixx.aslan.pipeline.PipelineParser;
 import no.nixx.aslan.pipeline.model.Argument;
 import no.nixx.aslan.pipeline.model.Command;
@@ -18,23 +20,41 @@ import java.util.TreeMap;
 import static java.lang.Math.min;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toList;
-import static no.nixx.aslan.core.utils.ListUtils.allButLastOf;
 import static no.nixx.aslan.core.utils.ListUtils.firstOf;
-import static no.nixx.aslan.core.utils.ListUtils.lastOf;
-import static no.nixx.aslan.core.utils.StringUtils.anyContainsWhiteSpace;
 import static no.nixx.aslan.core.utils.StringUtils.containsWhiteSpace;
-import static no.nixx.aslan.core.utils.StringUtils.getCommonStartOfStrings;
+import static no.nixx.aslan.core.utils.StringUtils.getCommonStartLength;
 
 public class Completor {
 
+    private final PipelineParser parser;
+
+    public Completor() {
+        this(PipelineParser.newInstance());
+    }
+
+    public Completor(PipelineParser parser) {
+        this.parser = Preconditions.checkNotNull(parser);
+    }
+
     public CompletionResult getCompletions(String command, int tabPosition, ExecutableLocator executableLocator, ExecutionContext executionContext) {
+        return getCompletions(command, tabPosition, executableLocator, executionContext, new CancellationToken());
+    }
+
+    /**
+     * Finds the completions like getCompletions above, but stops with a CancellationException if the token is cancelled
+     * before the completions are found.
+     */
+    public CompletionResult getCompletions(String command, int tabPosition, ExecutableLocator executableLocator, ExecutionContext executionContext, CancellationToken cancellationToken) {
         Preconditions.checkNotNull(command);
         Preconditions.checkArgument(tabPosition <= command.length());
         Preconditions.checkNotNull(executableLocator);
         Preconditions.checkNotNull(executionContext);
+        Preconditions.checkNotNull(cancellationToken);
 
+        cancellationToken.throwIfCancelled();
         final CompletionResult emptyCompletionResult = createEmptyCompletionResult(command, tabPosition);
         final Pipeline pipelineToComplete = parseCommand(command);
+        cancellationToken.throwIfCancelled();
         final boolean isUnableToParsePipeline = pipelineToComplete == null;
 
         if (isUnableToParsePipeline) {
@@ -47,7 +67,12 @@ public class Completor {
             final List<String> renderedPrecedingArguments = commandToComplete.getPrecedingArguments(argumentToComplete).stream().map(Argument::getRenderedText).collect(toList());
 
             if (commandToComplete.isFirstArgument(argumentToComplete)) {
-                return createCompletionResult(command, argumentToComplete, executableLocator.findExecutableCandidates(renderedArgumentToComplete), true, true);
+                final List<String> executableCandidates = executableLocator.findExecutableCandidates(renderedArgumentToComplete);
+                if (executableCandidates.isEmpty()) {
+                    return emptyCompletionResult;
+                } else {
+                    return createCompletionResult(command, argumentToComplete, executableCandidates, true, true);
+                }
             }
 
             final Executable executable = executableLocator.lookupExecutable(commandToComplete.getExecutableName());
@@ -58,9 +83,10 @@ public class Completor {
             final Completable completable = (Completable) executable;
             final CompletionSpecRoot completionSpecRoot = completable.getCompletionSpec(executionContext);
 
-            final TemporaryCompletionResult partialCompletionResult = getPartiallyMatchingCompletions(completionSpecRoot, renderedArgumentToComplete, renderedPrecedingArguments);
+            final CompletionSpecMatcher matcher = new CompletionSpecMatcher(completionSpecRoot, renderedPrecedingArguments, cancellationToken);
+            final TemporaryCompletionResult partialCompletionResult = getPartiallyMatchingCompletions(matcher, renderedArgumentToComplete);
             if (partialCompletionResult.completions.isEmpty()) {
-                final TemporaryCompletionResult completeCompletionResult = getCompletelyMatchingCompletions(completionSpecRoot, renderedArgumentToComplete, renderedPrecedingArguments);
+                final TemporaryCompletionResult completeCompletionResult = getCompletelyMatchingCompletions(matcher, renderedArgumentToComplete);
                 if (completeCompletionResult.completions.isEmpty()) {
                     return emptyCompletionResult;
                 } else {
@@ -87,11 +113,12 @@ public class Completor {
                 completion = String.format("%s%s", onlyCompletion, doAppendSpace ? " " : "");
             }
         } else {
-            if (anyContainsWhiteSpace(completions)) {
-                completion = "\"" + getCommonStartOfStrings(completions);
-                completions = completions.stream().map(s -> "\"" + s + "\"").collect(toList());
+            final Candidates candidates = new Candidates(completions);
+            if (candidates.anyContainsWhiteSpace) {
+                completion = "\"" + candidates.commonStart;
+                completions = candidates.quoted();
             } else {
-                completion = getCommonStartOfStrings(completions);
+                completion = candidates.commonStart;
             }
         }
 
@@ -103,48 +130,49 @@ public class Completor {
     }
 
     private Pipeline parseCommand(String command) {
-        final PartialPipelineSupplementor partialPipelineSupplementor = new PartialPipelineSupplementor();
-        final String supplementedCommand = partialPipelineSupplementor.supplementPipeline(command);
-
         try {
-            final PipelineParser parser = new PipelineParser();
-            return parser.parseCommand(supplementedCommand);
+            if (parser instanceof IncrementalPipelineParser) {
+                return ((IncrementalPipelineParser) parser).parsePartialCommand(command);
+            } else {
+                final PartialPipelineSupplementor partialPipelineSupplementor = new PartialPipelineSupplementor();
+                return parser.parseCommand(partialPipelineSupplementor.supplementPipeline(command));
+            }
         } catch (Exception e) {
             return null;
         }
     }
 
-    private TemporaryCompletionResult getPartiallyMatchingCompletions(CompletionSpecRoot completionSpecRoot, String argumentToComplete, List<String> precedingArguments) {
-        return getMatchingCompletions(completionSpecRoot, false, argumentToComplete, precedingArguments);
+    private TemporaryCompletionResult getPartiallyMatchingCompletions(CompletionSpecMatcher matcher, String argumentToComplete) {
+        return getMatchingCompletions(matcher, false, argumentToComplete);
     }
 
-    private TemporaryCompletionResult getCompletelyMatchingCompletions(CompletionSpecRoot completionSpecRoot, String argumentToComplete, List<String> precedingArguments) {
-        return getMatchingCompletions(completionSpecRoot, true, argumentToComplete, precedingArguments);
+    private TemporaryCompletionResult getCompletelyMatchingCompletions(CompletionSpecMatcher matcher, String argumentToComplete) {
+        return getMatchingCompletions(matcher, true, argumentToComplete);
     }
 
-    private TemporaryCompletionResult getMatchingCompletions(CompletionSpecRoot completionSpecRoot, boolean findCompleteMatches, String argumentToComplete, List<String> precedingArguments) {
-        final List<CompletionSpec> matchingNodes = (findCompleteMatches) ? findCompleteMatchingNodes(completionSpecRoot, argumentToComplete) : findPartialMatchingNodes(completionSpecRoot, argumentToComplete);
-        final List<CompletionSpec> nodesWithCompleteAncestry = findNodesWithCompleteAncestry(matchingNodes, precedingArguments);
-        final List<CompletionSpec> nodesWithCorrectOccurenceCount = findNodesWithCorrectOccurenceCount(nodesWithCompleteAncestry, precedingArguments);
+    private TemporaryCompletionResult getMatchingCompletions(CompletionSpecMatcher matcher, boolean findCompleteMatches, String argumentToComplete) {
+        final List<CompletionSpec> matchingNodes = matcher.findMatchingNodes(argumentToComplete, findCompleteMatches);
+        final List<CompletionSpec> nodesWithCompleteAncestry = findNodesWithCompleteAncestry(matcher, matchingNodes);
+        final List<CompletionSpec> nodesWithCorrectOccurenceCount = findNodesWithCorrectOccurenceCount(matcher, nodesWithCompleteAncestry);
 
-        return findMostDeeplyNestedCompletions(argumentToComplete, nodesWithCorrectOccurenceCount);
+        return findMostDeeplyNestedCompletions(matcher, argumentToComplete, nodesWithCorrectOccurenceCount);
     }
 
     @SuppressWarnings("SimplifiableIfStatement")
-    private TemporaryCompletionResult findMostDeeplyNestedCompletions(String argumentToComplete, List<CompletionSpec> complectionSpecs) {
+    private TemporaryCompletionResult findMostDeeplyNestedCompletions(CompletionSpecMatcher matcher, String argumentToComplete, List<CompletionSpec> complectionSpecs) {
         if (complectionSpecs.isEmpty()) {
             return new TemporaryCompletionResult(false, false, emptyList());
         }
 
         final Map<Integer, List<String>> completionSpecsByDepth = new TreeMap<>();
         for (CompletionSpec completionSpec : complectionSpecs) {
-            final int depth = getDepth(completionSpec);
+            final int depth = completionSpec.getDepth();
 
             if (!completionSpecsByDepth.containsKey(depth)) {
                 completionSpecsByDepth.put(depth, new ArrayList<>());
             }
 
-            completionSpecsByDepth.get(depth).addAll(completionSpec.getCompletions(argumentToComplete));
+            completionSpecsByDepth.get(depth).addAll(matcher.getCompletions(completionSpec, argumentToComplete));
         }
 
         final int maxDepth = completionSpecsByDepth.keySet().stream().max(Comparator.<Integer>naturalOrder()).get();
@@ -163,10 +191,10 @@ public class Completor {
         return new TemporaryCompletionResult(doAppendSpaceIfOnlyOneCompletion, doAppendQuoteIfOnlyOneCompletion, allCompletions);
     }
 
-    private List<CompletionSpec> findNodesWithCorrectOccurenceCount(List<CompletionSpec> completionSpecs, List<String> arguments) {
+    private List<CompletionSpec> findNodesWithCorrectOccurenceCount(CompletionSpecMatcher matcher, List<CompletionSpec> completionSpecs) {
         final List<CompletionSpec> nodesWithCorrectOccurenceCount = new ArrayList<>();
         for (CompletionSpec completionSpec : completionSpecs) {
-            if (completionSpec.canOccurOnlyOnce() && hasCompleteAncestry(completionSpec, arguments)) {
+            if (completionSpec.canOccurOnlyOnce() && matcher.hasCompleteAncestry(completionSpec)) {
                 continue;
             }
 
@@ -176,53 +204,37 @@ public class Completor {
         return nodesWithCorrectOccurenceCount;
     }
 
-    private List<CompletionSpec> findNodesWithCompleteAncestry(List<CompletionSpec> completionSpecs, List<String> arguments) {
-        return completionSpecs.stream().filter(node -> hasCompleteAncestry(node.getParent(), arguments)).collect(toList());
+    private List<CompletionSpec> findNodesWithCompleteAncestry(CompletionSpecMatcher matcher, List<CompletionSpec> completionSpecs) {
+        return completionSpecs.stream().filter(node -> matcher.hasCompleteAncestry(node.getParent())).collect(toList());
     }
 
-    private boolean hasCompleteAncestry(CompletionSpec completionSpec, List<String> arguments) {
-        if (completionSpec instanceof CompletionSpecRoot) {
-            return true;
-        } else if (arguments.isEmpty()) {
-            return false;
-        } else {
-            final String argumentToMatch = lastOf(arguments);
-            final List<String> preceedingArguments = allButLastOf(arguments);
-            if (completionSpec.isCompleteMatch(argumentToMatch)) {
-                return hasCompleteAncestry(completionSpec.getParent(), preceedingArguments);
-            } else {
-                return hasCompleteAncestry(completionSpec, preceedingArguments);
-            }
-        }
-    }
-
-    private List<CompletionSpec> findCompleteMatchingNodes(CompletionSpec completionSpec, String argument) {
-        return findMatchingNodes(completionSpec, argument, true);
-    }
-
-    private List<CompletionSpec> findPartialMatchingNodes(CompletionSpec completionSpec, String argument) {
-        return findMatchingNodes(completionSpec, argument, false);
-    }
+    // The common start of the candidates and whether any of them needs quoting, found in one pass over the candidates.
+    // The common start can only shrink, so each candidate is compared no further than the common start so far.
+    private static class Candidates {
+        public final List<String> candidates;
+        public final String commonStart;
+        public final boolean anyContainsWhiteSpace;
 
-    private List<CompletionSpec> findMatchingNodes(CompletionSpec completionSpec, String argument, boolean findCompleteMatches) {
-        final ArrayList<CompletionSpec> matches = new ArrayList<>();
-
-        if (findCompleteMatches ? completionSpec.isCompleteMatch(argument) : completionSpec.isPartialMatch(argument)) {
-            matches.add(completionSpec);
-        }
+        Candidates(List<String> candidates) {
+            final String first = firstOf(candidates);
+            int commonStartLength = first.length();
+            boolean anyContainsWhiteSpace = false;
+            for (String candidate : candidates) {
+                commonStartLength = getCommonStartLength(first, candidate, commonStartLength);
+                anyContainsWhiteSpace = anyContainsWhiteSpace || containsWhiteSpace(candidate);
+            }
 
-        for (CompletionSpec child : completionSpec.getChildren()) {
-            matches.addAll(findCompleteMatches ? findCompleteMatchingNodes(child, argument) : findPartialMatchingNodes(child, argument));
+            this.candidates = candidates;
+            this.commonStart = first.substring(0, commonStartLength);
+            this.anyContainsWhiteSpace = anyContainsWhiteSpace;
         }
 
-        return matches;
-    }
-
-    private int getDepth(CompletionSpec completionSpec) {
-        if (completionSpec instanceof CompletionSpecRoot) {
-            return 0;
-        } else {
-            return getDepth(completionSpec.getParent()) + 1;
+        List<String> quoted() {
+            final List<String> quoted = new ArrayList<>(candidates.size());
+            for (String candidate : candidates) {
+                quoted.add("\"" + candidate + "\"");
+            }
+            return quoted;
         }
     }
 
@@ -0,0 +1,127 @@
+package no.nixx.aslan.core.completion;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+import static no.nixx.aslan.core.utils.Preconditions.checkNoNulls;
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * An immutable set of strings that finds all strings starting with a prefix by binary search. The strings with a given
+ * prefix form one range of the sorted array, and since the range is sorted, the common start of all of them is the
+ * common start of the first and the last one.
+ */
+public class PrefixIndex {
+
+    private final String[] sorted;
+
+    // The position of each sorted string in the original order
+    private final int[] order;
+
+    public PrefixIndex(Collection<String> strings) {
+        checkNoNulls(strings.toArray());
+        final String[] original = strings.stream().distinct().toArray(String[]::new);
+        final Integer[] positions = new Integer[original.length];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, (a, b) -> original[a].compareTo(original[b]));
+
+        this.sorted = new String[original.length];
+        this.order = new int[original.length];
+        for (int i = 0; i < positions.length; i++) {
+            sorted[i] = original[positions[i]];
+            order[i] = positions[i];
+        }
+    }
+
+    public int size() {
+        return sorted.length;
+    }
+
+    public boolean contains(String s) {
+        return Arrays.binarySearch(sorted, checkNotNull(s)) >= 0;
+    }
+
+    public boolean containsPrefix(String prefix) {
+        final int from = lowerBound(checkNotNull(prefix));
+        return from < sorted.length && sorted[from].startsWith(prefix);
+    }
+
+    /**
+     * Returns the strings starting with the prefix, in sorted order.
+     */
+    public List<String> getMatches(String prefix) {
+        final int from = lowerBound(checkNotNull(prefix));
+        final int to = upperBound(prefix, from);
+        return unmodifiableList(Arrays.asList(sorted).subList(from, to));
+    }
+
+    /**
+     * Returns the strings starting with the prefix, in the order they were given to the index.
+     */
+    public List<String> getMatchesInOriginalOrder(String prefix) {
+        final int from = lowerBound(checkNotNull(prefix));
+        final int to = upperBound(prefix, from);
+        final int[] positions = Arrays.copyOfRange(order, from, to);
+        Arrays.sort(positions);
+
+        final String[] matches = new String[positions.length];
+        for (int i = from; i < to; i++) {
+            matches[Arrays.binarySearch(positions, order[i])] = sorted[i];
+        }
+        return unmodifiableList(Arrays.asList(matches));
+    }
+
+    /**
+     * Returns the longest common start of all strings starting with the prefix, or the prefix if there are none.
+     */
+    public String getCommonPrefix(String prefix) {
+        final int from = lowerBound(checkNotNull(prefix));
+        final int to = upperBound(prefix, from);
+        if (from == to) {
+            return prefix;
+        }
+
+        final String first = sorted[from];
+        final String last = sorted[to - 1];
+        final int length = Math.min(first.length(), last.length());
+        int i = prefix.length();
+        while (i < length && first.charAt(i) == last.charAt(i)) {
+            i++;
+        }
+        return first.substring(0, i);
+    }
+
+    // The index of the first string that is not less than the prefix
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (sorted[middle].compareTo(prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // The index of the first string after from that does not start with the prefix
+    private int upperBound(String prefix, int from) {
+        int low = from;
+        int high = sorted.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (sorted[middle].startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
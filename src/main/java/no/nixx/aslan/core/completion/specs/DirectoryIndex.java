@@ -0,0 +1,211 @@
+package no.nixx.aslan.core.completion.specs;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.util.Collections.unmodifiableList;
+import static no.nixx.aslan.core.utils.Preconditions.checkArgument;
+
+/**
+ * Caches directory listings, with the name and type of every entry, for path completion. A listing reads the
+ * attributes of each entry once, which on Windows comes for free with the directory listing itself. Listings are kept
+ * until the WatchService reports a change in the directory, or until they are evicted as the least recently used.
+ * Directories that cannot be watched are listed every time.
+ */
+public class DirectoryIndex {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private static final DirectoryIndex sharedInstance = new DirectoryIndex(DEFAULT_MAXIMUM_SIZE);
+
+    private final Map<Path, Listing> listings;
+    private WatchService watchService;
+
+    public DirectoryIndex(int maximumSize) {
+        checkArgument(maximumSize > 0);
+        this.listings = new LinkedHashMap<Path, Listing>(16, 0.75f, true) {
+            private static final long serialVersionUID = -2694826187251367563L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Listing> eldest) {
+                if (size() > maximumSize) {
+                    eldest.getValue().watchKey.cancel();
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    public static DirectoryIndex getSharedInstance() {
+        return sharedInstance;
+    }
+
+    public List<Entry> getEntries(Path directory) throws IOException {
+        return getListing(directory).entries;
+    }
+
+    /**
+     * Returns the entry for the path, or null if it does not exist.
+     */
+    public Entry getEntry(Path path) {
+        final Path absolutePath = path.toAbsolutePath();
+        final Path parent = absolutePath.getParent();
+        final Path fileName = absolutePath.getFileName();
+        if (parent == null || fileName == null || fileName.toString().equals(".") || fileName.toString().equals("..")) {
+            return readEntry(absolutePath, absolutePath.toString());
+        }
+
+        try {
+            return getListing(parent).entriesByName.get(fileName);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public int size() {
+        synchronized (listings) {
+            return listings.size();
+        }
+    }
+
+    private Listing getListing(Path directory) throws IOException {
+        final Path key = directory.toAbsolutePath().normalize();
+        synchronized (listings) {
+            final Listing listing = listings.get(key);
+            if (listing != null) {
+                return listing;
+            }
+        }
+
+        // Start watching before listing, so that no change after the listing is missed
+        final WatchKey watchKey = watch(key);
+        final Listing listing = list(key, watchKey);
+        if (watchKey != null) {
+            synchronized (listings) {
+                // The key is cancelled as soon as a change is seen, which might have happened during the listing
+                if (watchKey.isValid()) {
+                    listings.put(key, listing);
+                }
+            }
+        }
+        return listing;
+    }
+
+    private Listing list(Path directory, WatchKey watchKey) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        final Map<Path, Entry> entriesByName = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                final Path fileName = path.getFileName();
+                final Entry entry = readEntry(path, fileName.toString());
+                // Broken links and entries that disappear while listing are neither files nor directories
+                final Entry listedEntry = (entry == null) ? new Entry(fileName.toString(), false, false) : entry;
+                entries.add(listedEntry);
+                entriesByName.put(fileName, listedEntry);
+            }
+        }
+        return new Listing(watchKey, unmodifiableList(entries), entriesByName);
+    }
+
+    private Entry readEntry(Path path, String name) {
+        try {
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Entry(name, attributes.isDirectory(), attributes.isRegularFile());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private WatchKey watch(Path directory) {
+        if (directory.getFileSystem() != FileSystems.getDefault()) {
+            return null;
+        }
+
+        try {
+            return directory.register(getWatchService(), ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private synchronized WatchService getWatchService() throws IOException {
+        if (watchService == null) {
+            watchService = FileSystems.getDefault().newWatchService();
+            final Thread watcher = new Thread(this::processEvents, "DirectoryIndex watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        return watchService;
+    }
+
+    private void processEvents() {
+        try {
+            while (true) {
+                final WatchKey watchKey = watchService.take();
+                watchKey.cancel();
+                watchKey.pollEvents();
+                synchronized (listings) {
+                    final Iterator<Listing> iterator = listings.values().iterator();
+                    while (iterator.hasNext()) {
+                        if (iterator.next().watchKey == watchKey) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stop watching
+        }
+    }
+
+    private static class Listing {
+        final WatchKey watchKey;
+        final List<Entry> entries;
+        final Map<Path, Entry> entriesByName;
+
+        Listing(WatchKey watchKey, List<Entry> entries, Map<Path, Entry> entriesByName) {
+            this.watchKey = watchKey;
+            this.entries = entries;
+            this.entriesByName = entriesByName;
+        }
+    }
+
+    public static class Entry {
+        public final String name;
+        public final boolean isDirectory;
+        public final boolean isRegularFile;
+
+        public Entry(String name, boolean isDirectory, boolean isRegularFile) {
+            this.name = name;
+            this.isDirectory = isDirectory;
+            this.isRegularFile = isRegularFile;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "name='" + name + '\'' +
+                    ", isDirectory=" + isDirectory +
+                    ", isRegularFile=" + isRegularFile +
+                    '}';
+        }
+    }
+}
@@ -1,20 +1,22 @@
 package no.nixx.aslan.core.completion.specs;
 
 import no.nixx.aslan.core.completion.CompletionSpec;
+import no.nixx.aslan.core.completion.PrefixIndex;
 
 import java.util.List;
 
 import static java.util.Arrays.asList;
-import static java.util.stream.Collectors.toList;
 import static no.nixx.aslan.core.utils.Preconditions.checkNoNulls;
 import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
 
 public class KeywordCompletionSpec extends CompletionSpec {
 
     private final List<String> keywords;
+    private final PrefixIndex index;
 
     public KeywordCompletionSpec(String... keywords) {
         this.keywords = asList(checkNoNulls(keywords));
+        this.index = new PrefixIndex(this.keywords);
     }
 
     public static KeywordCompletionSpec keywords(String... keywords) {
@@ -24,19 +26,19 @@ public class KeywordCompletionSpec extends CompletionSpec {
     @Override
     public boolean isPartialMatch(String argument) {
         checkNotNull(argument);
-        return (argument.isEmpty() || getCompletions(argument).size() > 0) && !isCompleteMatch(argument);
+        return (argument.isEmpty() || index.containsPrefix(argument)) && !isCompleteMatch(argument);
     }
 
     @Override
     public boolean isCompleteMatch(String argument) {
         checkNotNull(argument);
-        return keywords.contains(argument);
+        return index.contains(argument);
     }
 
     @Override
     public List<String> getCompletions(String argument) {
         checkNotNull(argument);
-        return keywords.stream().filter((s) -> s.startsWith(argument)).collect(toList());
+        return index.getMatchesInOriginalOrder(argument);
     }
 
     @Override
@@ -6,7 +6,6 @@ import no.nixx.aslan.core.completion.CompletionSpec;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.FileSystems;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
@@ -24,52 +23,57 @@ public class PathCompletionSpec extends CompletionSpec {
 
     private final Type type;
     private final ExecutionContext executionContext;
+    private final DirectoryIndex directoryIndex;
 
     private boolean doAppendSpace = false;
+    private String lastArgument;
+    private List<MatchingPath> lastMatchingPaths;
 
     public PathCompletionSpec(ExecutionContext executionContext) {
         this(executionContext, Type.FILES_AND_DIRECTORIES);
     }
 
     public PathCompletionSpec(ExecutionContext executionContext, Type type) {
+        this(executionContext, type, DirectoryIndex.getSharedInstance());
+    }
+
+    public PathCompletionSpec(ExecutionContext executionContext, Type type, DirectoryIndex directoryIndex) {
         this.executionContext = executionContext;
         this.type = type;
+        this.directoryIndex = directoryIndex;
     }
 
     @Override
     public boolean isPartialMatch(String argument) {
-        return getMatchingPaths(argument).findAny().isPresent();
+        return !getMatchingPaths(argument).isEmpty();
     }
 
     @Override
     public boolean isCompleteMatch(String argument) {
-        final Path resolvedArgument = getResolved(argument);
-        final boolean fileExists = Files.exists(resolvedArgument);
-        final boolean hasCorrectType;
+        final DirectoryIndex.Entry entry = directoryIndex.getEntry(getResolved(argument));
+        if (entry == null) {
+            return false;
+        }
+
         switch (type) {
             case FILES:
-                hasCorrectType = Files.isRegularFile(resolvedArgument);
-                break;
+                return entry.isRegularFile;
             case DIRECTORIES:
-                hasCorrectType = Files.isDirectory(resolvedArgument);
-                break;
+                return entry.isDirectory;
             case FILES_AND_DIRECTORIES:
-                hasCorrectType = Files.isRegularFile(resolvedArgument) || Files.isDirectory(resolvedArgument);
-                break;
+                return entry.isRegularFile || entry.isDirectory;
             default:
-                hasCorrectType = false;
+                return false;
         }
-
-        return fileExists && hasCorrectType;
     }
 
     @Override
     public List<String> getCompletions(String argument) {
-        final List<Path> matchingPaths = getMatchingPaths(argument).collect(toList());
+        final List<MatchingPath> matchingPaths = getMatchingPaths(argument);
 
-        doAppendSpace = (matchingPaths.size() == 1) && Files.isRegularFile(getResolved(firstOf(matchingPaths)));
+        doAppendSpace = (matchingPaths.size() == 1) && firstOf(matchingPaths).entry.isRegularFile;
 
-        return matchingPaths.stream().map(path -> path.toString() + (Files.isDirectory(getResolved(path)) ? FILE_SEPARATOR : "")).collect(toList());
+        return matchingPaths.stream().map(p -> p.path.toString() + (p.entry.isDirectory ? FILE_SEPARATOR : "")).collect(toList());
     }
 
     @Override
@@ -87,45 +91,51 @@ public class PathCompletionSpec extends CompletionSpec {
         return true;
     }
 
-    private Stream<Path> getMatchingPaths(String argument) {
+    // The completor asks for the same argument several times in a row
+    private List<MatchingPath> getMatchingPaths(String argument) {
+        if (!argument.equals(lastArgument)) {
+            lastMatchingPaths = findMatchingPaths(argument).collect(toList());
+            lastArgument = argument;
+        }
+        return lastMatchingPaths;
+    }
+
+    private Stream<MatchingPath> findMatchingPaths(String argument) {
         final Path workingDirectory = executionContext.getWorkingDirectory().asPath().toAbsolutePath();
 
         try {
             final TypeFilter typeFilter = new TypeFilter(type);
 
             if (argument.isEmpty()) {
-                return Files
-                        .list(workingDirectory)
+                return list(workingDirectory)
                         .filter(typeFilter::filterByType)
-                        .map(p -> p.subpath(workingDirectory.getNameCount(), p.getNameCount()));
+                        .map(p -> p.withPath(p.path.subpath(workingDirectory.getNameCount(), p.path.getNameCount())));
             } else {
                 // Windows does not allow trailing spaces in file names and Paths.get() throws an exception
                 final String sanitizedArgument = isWindows() ? removeTrailingSpaces(argument) : argument;
                 final Path path = Paths.get(sanitizedArgument);
                 final Path absolutePath = getResolved(sanitizedArgument);
                 final NameFilter nameFilter = new NameFilter(absolutePath.getFileName());
+                final DirectoryIndex.Entry entry = directoryIndex.getEntry(absolutePath);
 
-                final Stream<Path> stream;
-                if (Files.exists(absolutePath)) {
-                    if (Files.isDirectory(absolutePath)) {
+                final Stream<MatchingPath> stream;
+                if (entry != null) {
+                    if (entry.isDirectory) {
                         if (sanitizedArgument.endsWith(FILE_SEPARATOR)) {
-                            stream = Files
-                                    .list(absolutePath)
+                            stream = list(absolutePath)
                                     .filter(typeFilter::filterByType);
                         } else {
-                            stream = Files
-                                    .list(absolutePath.getParent())
+                            stream = list(absolutePath.getParent())
                                     .filter(nameFilter::filterByName)
                                     .filter(typeFilter::filterByType);
                         }
                     } else {
                         stream = Stream
-                                .of(absolutePath)
+                                .of(new MatchingPath(absolutePath, entry))
                                 .filter(typeFilter::filterByType);
                     }
                 } else {
-                    stream = Files
-                            .list(absolutePath.getParent())
+                    stream = list(absolutePath.getParent())
                             .filter(nameFilter::filterByName)
                             .filter(typeFilter::filterByType);
                 }
@@ -134,9 +144,9 @@ public class PathCompletionSpec extends CompletionSpec {
                     return stream;
                 } else if (isDriveAbsolute(path)) {
                     final Path driveRoot = Paths.get(FILE_SEPARATOR);
-                    return stream.map(p -> driveRoot.resolve(p.subpath(0, p.getNameCount())));
+                    return stream.map(p -> p.withPath(driveRoot.resolve(p.path.subpath(0, p.path.getNameCount()))));
                 } else {
-                    return stream.map(p -> p.subpath(workingDirectory.getNameCount(), p.getNameCount()));
+                    return stream.map(p -> p.withPath(p.path.subpath(workingDirectory.getNameCount(), p.path.getNameCount())));
                 }
             }
         } catch (IOException e) {
@@ -144,6 +154,10 @@ public class PathCompletionSpec extends CompletionSpec {
         }
     }
 
+    private Stream<MatchingPath> list(Path directory) throws IOException {
+        return directoryIndex.getEntries(directory).stream().map(e -> new MatchingPath(directory.resolve(e.name), e));
+    }
+
     private boolean isDriveAbsolute(Path path) {
         return !path.isAbsolute() && path.toString().startsWith(FILE_SEPARATOR);
     }
@@ -152,10 +166,6 @@ public class PathCompletionSpec extends CompletionSpec {
         return executionContext.getWorkingDirectory().asPath().toAbsolutePath().resolve(str);
     }
 
-    private Path getResolved(Path path) {
-        return executionContext.getWorkingDirectory().asPath().resolve(path);
-    }
-
     @Override
     public String toString() {
         return "PathCompletionSpec{" +
@@ -170,6 +180,20 @@ public class PathCompletionSpec extends CompletionSpec {
     }
 }
 
+class MatchingPath {
+    final Path path;
+    final DirectoryIndex.Entry entry;
+
+    MatchingPath(Path path, DirectoryIndex.Entry entry) {
+        this.path = path;
+        this.entry = entry;
+    }
+
+    MatchingPath withPath(Path path) {
+        return new MatchingPath(path, entry);
+    }
+}
+
 class TypeFilter {
     private final PathCompletionSpec.Type type;
 
@@ -178,11 +202,11 @@ class TypeFilter {
     }
 
     @SuppressWarnings("SimplifiableIfStatement")
-    public boolean filterByType(Path p) {
+    public boolean filterByType(MatchingPath p) {
         if (type == PathCompletionSpec.Type.DIRECTORIES) {
-            return Files.isDirectory(p);
+            return p.entry.isDirectory;
         } else if (type == FILES) {
-            return Files.isRegularFile(p);
+            return p.entry.isRegularFile;
         } else {
             return true;
         }
@@ -196,8 +220,8 @@ class NameFilter {
         this.pathToMatch = pathToMatch;
     }
 
-    public boolean filterByName(Path p) {
-        return p.getFileName().toString().startsWith(pathToMatch.toString());
+    public boolean filterByName(MatchingPath p) {
+        return p.entry.name.startsWith(pathToMatch.toString());
     }
 
 }
\ No newline at end of file
@@ -8,44 +8,78 @@ import no.nixx.aslan.core.completion.CompletionSpecRoot;
 import no.nixx.aslan.core.completion.specs.PathCompletionSpec;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 
+import static java.nio.file.StandardOpenOption.READ;
+
 @ExecutableMetadata(name = "cat")
 public class Cat implements Program, Completable {
+
+    static final int BUFFER_SIZE = 64 * 1024;
+    static final long MAPPING_THRESHOLD = 1024 * 1024;
+    static final long MAPPING_CHUNK_SIZE = 16 * 1024 * 1024;
+
     @Override
     public void run(ExecutionContext context, List<String> args) {
+        final WritableByteChannel out = context.outputChannel();
         if (args.isEmpty()) {
-            copy(context.input(), context.output());
+            copy(context.inputChannel(), out);
         } else {
             final Path cwd = context.getWorkingDirectory().asPath();
             for (String filename : args) {
                 if (filename.equals("-")) {
-                    copy(context.input(), context.output());
+                    copy(context.inputChannel(), out);
                 } else {
-                    final Path file = cwd.resolve(Paths.get(filename));
-                    try {
-                        final FileInputStream fileInputStream = new FileInputStream(file.toFile());
-                        copy(fileInputStream, context.output());
-                    } catch (FileNotFoundException e) {
-                        throw new RuntimeException(e);
+                    copy(cwd.resolve(Paths.get(filename)), out);
+                }
+            }
+        }
+    }
+
+    private void copy(Path file, WritableByteChannel out) {
+        try (FileChannel in = FileChannel.open(file, READ)) {
+            final long size = in.size();
+            if (out instanceof FileChannel) {
+                long position = 0;
+                while (position < size) {
+                    final long transferred = in.transferTo(position, size - position, out);
+                    if (transferred == 0) {
+                        break;
+                    }
+                    position += transferred;
+                }
+            } else if (size >= MAPPING_THRESHOLD) {
+                // Hand the next stage large mapped regions rather than pulling the file through a small heap buffer
+                for (long position = 0; position < size; position += MAPPING_CHUNK_SIZE) {
+                    final MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPING_CHUNK_SIZE, size - position));
+                    while (region.hasRemaining()) {
+                        out.write(region);
                     }
                 }
+            } else {
+                copy(in, out);
             }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
     }
 
-    private void copy(InputStream in, OutputStream out) {
+    private void copy(ReadableByteChannel in, WritableByteChannel out) {
         try {
-            final byte[] buffer = new byte[4096];
-            while (true) {
-                final int bytesRead = in.read(buffer);
-                if (bytesRead == -1) {
-                    break;
-                } else {
-                    out.write(buffer, 0, bytesRead);
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
                 }
+                buffer.clear();
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
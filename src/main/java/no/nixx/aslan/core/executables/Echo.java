@@ -4,24 +4,23 @@ import no.nixx.aslan.api.ExecutionContext;
 import no.nixx.aslan.api.Program;
 import no.nixx.aslan.core.*;
 
-import java.io.PrintWriter;
-import java.util.Iterator;
+import java.io.IOException;
 import java.util.List;
 
+import static no.nixx.aslan.core.utils.StringUtils.join;
+
 @ExecutableMetadata(name = "echo")
 public class Echo implements Program {
 
+    // Written straight to the stream rather than through a PrintWriter, which would hide a broken pipe
     @Override
     public void run(ExecutionContext context, List<String> args) {
-        final PrintWriter writer = new PrintWriter(context.output(), true);
-        final Iterator<String> iterator = args.iterator();
-        while (iterator.hasNext()) {
-            writer.print(iterator.next());
-            if (iterator.hasNext()) {
-                writer.print(" ");
-            }
+        try {
+            context.output().write((join(args, " ") + System.lineSeparator()).getBytes());
+            context.output().flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
-        writer.println();
     }
 
     @Override
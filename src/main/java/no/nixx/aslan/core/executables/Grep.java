@@ -3,40 +3,120 @@ package no.nixx.aslan.core.executables;
 import no.nixx.aslan.api.ExecutionContext;
 import no.nixx.aslan.api.Program;
 import no.nixx.aslan.core.*;
+import no.nixx.aslan.core.executables.grep.*;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
-import static no.nixx.aslan.core.utils.Preconditions.checkArgument;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
 @ExecutableMetadata(name = "grep")
 public class Grep implements Program {
 
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private GrepOptions options;
+    private Charset charset;
+    private LineMatcher matcher;
+    private StreamScanner streamScanner;
+    private int exitStatus = 1;
+
     @Override
     public void run(ExecutionContext context, List<String> args) {
-        checkArgument(args.size() == 1);
-        final String pattern = args.get(0);
-        final BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(context.input()));
-        final PrintWriter pw = new PrintWriter(context.output(), true);
+        options = GrepOptions.parse(args);
+        charset = Charset.defaultCharset();
+        matcher = LineMatcher.forOptions(options, charset);
+        final LineScanner scanner = new LineScanner(matcher, options.invertMatch, options.lineNumbers);
+        streamScanner = isAsciiCompatible(charset) ? new StreamScanner(scanner) : null;
+        final OutputStream out = new BufferedOutputStream(context.output(), BUFFER_SIZE);
+        final PrintWriter err = new PrintWriter(context.error(), true);
 
         try {
-            while (true) {
-                final String line = bufferedReader.readLine();
-                if (line == null) {
-                    break;
-                }
-
-                if (line.contains(pattern)) { // TODO: REGEX
-                    pw.println(line);
+            if (options.files.isEmpty()) {
+                final LinePrinter printer = createPrinter(out, null);
+                scan(context.input(), printer);
+                finish(printer);
+            } else {
+                final Path cwd = context.getWorkingDirectory().asPath();
+                final FileScanner fileScanner = new FileScanner(scanner);
+                for (String filename : options.files) {
+                    final LinePrinter printer = createPrinter(out, (options.files.size() > 1) ? filename : null);
+                    try {
+                        if (filename.equals("-")) {
+                            scan(context.input(), printer);
+                        } else if (streamScanner != null) {
+                            fileScanner.scan(cwd.resolve(Paths.get(filename)), printer);
+                        } else {
+                            try (InputStream in = Files.newInputStream(cwd.resolve(Paths.get(filename)))) {
+                                scan(in, printer);
+                            }
+                        }
+                        finish(printer);
+                    } catch (NoSuchFileException e) {
+                        err.println("grep: " + filename + ": No such file");
+                        exitStatus = 2;
+                    }
                 }
             }
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                // The next stage has gone away, nothing more to do
+            }
+        }
+    }
+
+    // Lines can only be found and matched in the raw bytes when newlines and ASCII are encoded as single bytes
+    private boolean isAsciiCompatible(Charset charset) {
+        return charset.equals(UTF_8) || charset.equals(US_ASCII) || charset.equals(ISO_8859_1);
+    }
+
+    private LinePrinter createPrinter(OutputStream out, String name) {
+        return new LinePrinter(out, charset, name, options.lineNumbers, options.countOnly);
+    }
+
+    private void scan(InputStream in, LinePrinter printer) throws IOException {
+        if (streamScanner != null) {
+            streamScanner.scan(in, printer);
+            return;
+        }
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, charset), BUFFER_SIZE);
+        long lineNumber = 0;
+        while (true) {
+            if (!reader.ready()) {
+                printer.flush();
+            }
+            final String line = reader.readLine();
+            if (line == null) {
+                break;
+            }
+            lineNumber++;
+            if (matcher.matches(line) != options.invertMatch) {
+                printer.print(lineNumber, line);
+            }
+        }
+    }
+
+    private void finish(LinePrinter printer) throws IOException {
+        printer.finish();
+        if (printer.getCount() > 0 && exitStatus == 1) {
+            exitStatus = 0;
         }
     }
 
     @Override
     public int getExitStatus() {
-        return 0;
+        return exitStatus;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,129 @@
+package no.nixx.aslan.core.executables;
+
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.api.Program;
+import no.nixx.aslan.core.*;
+import no.nixx.aslan.core.completion.Completable;
+import no.nixx.aslan.core.completion.CompletionSpecRoot;
+import no.nixx.aslan.core.completion.specs.PathCompletionSpec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Prints the first lines of its input or of the given files. It stops reading as soon as it has printed them, and
+ * when the input is a pipe the stage writing to it is then stopped by a broken pipe, so "cat huge.log | head" only
+ * reads as much of the file as it prints.
+ */
+@ExecutableMetadata(name = "head")
+public class Head implements Program, Completable {
+
+    static final long DEFAULT_LINES = 10;
+    static final int BUFFER_SIZE = 8 * 1024;
+
+    private int exitStatus = 0;
+
+    @Override
+    public void run(ExecutionContext context, List<String> args) {
+        long lines = DEFAULT_LINES;
+        final List<String> files = new ArrayList<>();
+        final Iterator<String> iterator = args.iterator();
+        while (iterator.hasNext()) {
+            final String arg = iterator.next();
+            if (arg.equals("-n")) {
+                if (!iterator.hasNext()) {
+                    throw new IllegalArgumentException("Option requires an argument: -n");
+                }
+                lines = parseLines(iterator.next());
+            } else if (arg.startsWith("-n")) {
+                lines = parseLines(arg.substring(2));
+            } else if (arg.length() > 1 && arg.startsWith("-")) {
+                lines = parseLines(arg.substring(1));
+            } else {
+                files.add(arg);
+            }
+        }
+
+        final OutputStream out = context.output();
+        final PrintWriter err = new PrintWriter(context.error(), true);
+        try {
+            if (files.isEmpty()) {
+                copyLines(context.input(), out, lines);
+            } else {
+                final Path cwd = context.getWorkingDirectory().asPath();
+                for (int i = 0; i < files.size(); i++) {
+                    final String filename = files.get(i);
+                    if (files.size() > 1) {
+                        out.write(String.format("%s==> %s <==%n", (i > 0) ? System.lineSeparator() : "", filename).getBytes());
+                    }
+
+                    if (filename.equals("-")) {
+                        copyLines(context.input(), out, lines);
+                    } else {
+                        try (InputStream in = Files.newInputStream(cwd.resolve(Paths.get(filename)))) {
+                            copyLines(in, out, lines);
+                        } catch (NoSuchFileException e) {
+                            err.println("head: " + filename + ": No such file");
+                            exitStatus = 1;
+                        }
+                    }
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private long parseLines(String lines) {
+        try {
+            final long parsedLines = Long.parseLong(lines);
+            if (parsedLines >= 0) {
+                return parsedLines;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid number of lines: " + lines);
+    }
+
+    private void copyLines(InputStream in, OutputStream out, long lines) throws IOException {
+        if (lines == 0) {
+            return;
+        }
+
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long remainingLines = lines;
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            for (int i = 0; i < bytesRead; i++) {
+                if (buffer[i] == '\n' && --remainingLines == 0) {
+                    out.write(buffer, 0, i + 1);
+                    return;
+                }
+            }
+            out.write(buffer, 0, bytesRead);
+        }
+    }
+
+    @Override
+    public int getExitStatus() {
+        return exitStatus;
+    }
+
+    @Override
+    public CompletionSpecRoot getCompletionSpec(ExecutionContext executionContext) {
+        return new CompletionSpecRoot(
+                new PathCompletionSpec(executionContext)
+        );
+    }
+}
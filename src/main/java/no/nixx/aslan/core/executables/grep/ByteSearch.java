@@ -0,0 +1,77 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Searches byte arrays eight bytes at a time by reading them as little endian longs and locating the bytes of interest
+ * with word arithmetic. The arrays are accessed through a {@link ByteBuffer} view, created once per array with
+ * {@link #words(byte[])}, since that is the portable way of reading unaligned longs from a byte array.
+ */
+final class ByteSearch {
+
+    static final long ONES = 0x0101010101010101L;
+    static final long LOW_BITS = 0x7f7f7f7f7f7f7f7fL;
+
+    private ByteSearch() {
+    }
+
+    static ByteBuffer words(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(LITTLE_ENDIAN);
+    }
+
+    static long broadcast(byte b) {
+        return (b & 0xffL) * ONES;
+    }
+
+    // Returns x with the high bit set in exactly those bytes that are zero, and all other bits cleared
+    static long zeroBytes(long x) {
+        return ~(((x & LOW_BITS) + LOW_BITS) | x | LOW_BITS);
+    }
+
+    static int indexOf(ByteBuffer words, int from, int to, byte b) {
+        final long pattern = broadcast(b);
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            final long found = zeroBytes(words.getLong(i) ^ pattern);
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+
+        final byte[] bytes = words.array();
+        for (; i < to; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int count(ByteBuffer words, int from, int to, byte b) {
+        final long pattern = broadcast(b);
+        int count = 0;
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            count += Long.bitCount(zeroBytes(words.getLong(i) ^ pattern));
+        }
+
+        final byte[] bytes = words.array();
+        for (; i < to; i++) {
+            if (bytes[i] == b) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static int lastIndexOf(byte[] bytes, int from, int to, byte b) {
+        for (int i = to - 1; i >= from; i--) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
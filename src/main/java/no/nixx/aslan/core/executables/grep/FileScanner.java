@@ -0,0 +1,178 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Scans a file in line aligned chunks. Files larger than one chunk are scanned in parallel on a fork/join pool, with
+ * a bounded number of chunks in flight, and the selected lines are printed in file order as the chunks complete.
+ */
+public class FileScanner {
+
+    public static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    static final int EXTENSION_SIZE = 64 * 1024;
+
+    private final LineScanner scanner;
+    private final ForkJoinPool pool;
+    private final int maxChunksInFlight;
+
+    public FileScanner(LineScanner scanner) {
+        this(scanner, ForkJoinPool.commonPool());
+    }
+
+    public FileScanner(LineScanner scanner, ForkJoinPool pool) {
+        this.scanner = scanner;
+        this.pool = pool;
+        this.maxChunksInFlight = pool.getParallelism() * 2;
+    }
+
+    public void scan(Path file, LinePrinter printer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            final long size = channel.size();
+            final long numberOfChunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            long linesBefore = 0;
+
+            if (size == 0) {
+                return;
+            } else if (numberOfChunks == 1) {
+                new ChunkTask(channel, size, 0).compute().printTo(printer, linesBefore);
+                return;
+            }
+
+            final Deque<ForkJoinTask<ChunkResult>> inFlight = new ArrayDeque<>();
+            long nextChunk = 0;
+            try {
+                while (nextChunk < numberOfChunks || !inFlight.isEmpty()) {
+                    while (nextChunk < numberOfChunks && inFlight.size() < maxChunksInFlight) {
+                        inFlight.add(pool.submit(new ChunkTask(channel, size, nextChunk++)));
+                    }
+
+                    final ChunkResult result = inFlight.poll().join();
+                    result.printTo(printer, linesBefore);
+                    linesBefore += result.lineCount;
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                inFlight.forEach(task -> task.cancel(false));
+            }
+        }
+    }
+
+    private class ChunkTask extends RecursiveTask<ChunkResult> {
+
+        private static final long serialVersionUID = -7215420862153379164L;
+
+        private final FileChannel channel;
+        private final long size;
+        private final long index;
+
+        ChunkTask(FileChannel channel, long size, long index) {
+            this.channel = channel;
+            this.size = size;
+            this.index = index;
+        }
+
+        // The chunk owns the lines that start within [index * CHUNK_SIZE, (index + 1) * CHUNK_SIZE)
+        @Override
+        protected ChunkResult compute() {
+            try {
+                final long nominalStart = index * CHUNK_SIZE;
+                final long nominalEnd = Math.min(size, nominalStart + CHUNK_SIZE);
+
+                // Read one byte ahead of the chunk to tell whether it starts at a line boundary
+                final long readStart = Math.max(0, nominalStart - 1);
+                byte[] bytes = new byte[(int) (nominalEnd - readStart)];
+                int length = read(bytes, 0, bytes.length, readStart);
+
+                int start = (int) (nominalStart - readStart);
+                if (nominalStart > 0) {
+                    final int newline = LineScanner.indexOfNewline(bytes, 0, length);
+                    if (newline == -1 || newline + 1 >= length) {
+                        return new ChunkResult();
+                    }
+                    start = newline + 1;
+                }
+
+                // Extend the chunk until the line it ends in is complete
+                if (length > 0 && bytes[length - 1] != '\n' && nominalEnd < size) {
+                    while (readStart + length < size) {
+                        final int extension = (int) Math.min(EXTENSION_SIZE, size - (readStart + length));
+                        final int searchFrom = length;
+                        bytes = Arrays.copyOf(bytes, length + extension);
+                        final int bytesRead = read(bytes, length, extension, readStart + length);
+                        length += bytesRead;
+                        final int newline = LineScanner.indexOfNewline(bytes, searchFrom, length);
+                        if (newline != -1) {
+                            length = newline + 1;
+                            break;
+                        } else if (bytesRead < extension) {
+                            break;
+                        }
+                    }
+                }
+
+                final ChunkResult result = new ChunkResult();
+                result.lineCount = scanner.scan(bytes, start, length, result);
+                return result;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int read(byte[] bytes, int offset, int length, long position) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position() - offset) == -1) {
+                    break;
+                }
+            }
+            return buffer.position() - offset;
+        }
+    }
+
+    private static class ChunkResult implements LineScanner.LineHandler {
+
+        private int lineCount = 0;
+        private byte[] bytes = new byte[0];
+        private int length = 0;
+        private int[] lineIndexes = new int[0];
+        private int[] lineEnds = new int[0];
+        private int lines = 0;
+
+        @Override
+        public void onLine(int lineIndex, byte[] line, int from, int to) {
+            if (lines == lineIndexes.length) {
+                lineIndexes = Arrays.copyOf(lineIndexes, Math.max(16, lines * 2));
+                lineEnds = Arrays.copyOf(lineEnds, lineIndexes.length);
+            }
+            if (length + (to - from) > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + (to - from), bytes.length * 2));
+            }
+            System.arraycopy(line, from, bytes, length, to - from);
+            length += to - from;
+            lineIndexes[lines] = lineIndex;
+            lineEnds[lines] = length;
+            lines++;
+        }
+
+        void printTo(LinePrinter printer, long linesBefore) throws IOException {
+            int lineStart = 0;
+            for (int i = 0; i < lines; i++) {
+                printer.print(linesBefore + lineIndexes[i] + 1, bytes, lineStart, lineEnds[i]);
+                lineStart = lineEnds[i];
+            }
+        }
+    }
+}
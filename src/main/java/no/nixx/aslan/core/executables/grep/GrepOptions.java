@@ -0,0 +1,77 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+public class GrepOptions {
+
+    public final boolean ignoreCase;
+    public final boolean invertMatch;
+    public final boolean countOnly;
+    public final boolean lineNumbers;
+    public final boolean fixedStrings;
+    public final String pattern;
+    public final List<String> files;
+
+    private GrepOptions(boolean ignoreCase, boolean invertMatch, boolean countOnly, boolean lineNumbers, boolean fixedStrings, String pattern, List<String> files) {
+        this.ignoreCase = ignoreCase;
+        this.invertMatch = invertMatch;
+        this.countOnly = countOnly;
+        this.lineNumbers = lineNumbers;
+        this.fixedStrings = fixedStrings;
+        this.pattern = pattern;
+        this.files = unmodifiableList(files);
+    }
+
+    public static GrepOptions parse(List<String> args) {
+        boolean ignoreCase = false;
+        boolean invertMatch = false;
+        boolean countOnly = false;
+        boolean lineNumbers = false;
+        boolean fixedStrings = false;
+
+        int index = 0;
+        while (index < args.size()) {
+            final String arg = args.get(index);
+            if (arg.equals("--")) {
+                index++;
+                break;
+            } else if (!arg.startsWith("-") || arg.length() == 1) {
+                break;
+            }
+
+            for (char option : arg.substring(1).toCharArray()) {
+                switch (option) {
+                    case 'i':
+                        ignoreCase = true;
+                        break;
+                    case 'v':
+                        invertMatch = true;
+                        break;
+                    case 'c':
+                        countOnly = true;
+                        break;
+                    case 'n':
+                        lineNumbers = true;
+                        break;
+                    case 'F':
+                        fixedStrings = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Invalid option: -" + option);
+                }
+            }
+            index++;
+        }
+
+        if (index >= args.size()) {
+            throw new IllegalArgumentException("Usage: grep [-icnvF] pattern [file...]");
+        }
+
+        final String pattern = args.get(index);
+        final List<String> files = new ArrayList<>(args.subList(index + 1, args.size()));
+        return new GrepOptions(ignoreCase, invertMatch, countOnly, lineNumbers, fixedStrings, pattern, files);
+    }
+}
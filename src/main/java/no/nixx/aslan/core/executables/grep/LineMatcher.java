@@ -0,0 +1,32 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.nio.charset.Charset;
+import java.util.regex.Pattern;
+
+public interface LineMatcher {
+
+    String REGEX_METACHARACTERS = "\\.[]{}()*+?^$|";
+
+    boolean matches(CharSequence line);
+
+    boolean matches(byte[] bytes, int from, int to);
+
+    static LineMatcher forOptions(GrepOptions options, Charset charset) {
+        final String pattern = options.pattern;
+        final boolean canMatchBytesLiterally = (!options.ignoreCase || isAscii(pattern)) && pattern.indexOf('\n') == -1;
+        if ((options.fixedStrings || !containsRegexMetacharacters(pattern)) && canMatchBytesLiterally) {
+            return new LiteralLineMatcher(pattern, charset, options.ignoreCase);
+        } else {
+            final int flags = options.ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+            return new RegexLineMatcher(Pattern.compile(options.fixedStrings ? Pattern.quote(pattern) : pattern, flags), charset);
+        }
+    }
+
+    static boolean isAscii(String s) {
+        return s.chars().allMatch(c -> c < 0x80);
+    }
+
+    static boolean containsRegexMetacharacters(String s) {
+        return s.chars().anyMatch(c -> REGEX_METACHARACTERS.indexOf(c) != -1);
+    }
+}
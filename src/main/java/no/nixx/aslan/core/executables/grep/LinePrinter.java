@@ -0,0 +1,68 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Writes the selected lines of one input, prefixed by the input name and line number when asked for, or just the
+ * number of selected lines when counting.
+ */
+public class LinePrinter {
+
+    private final OutputStream out;
+    private final Charset charset;
+    private final byte[] namePrefix;
+    private final boolean lineNumbers;
+    private final boolean countOnly;
+    private final byte[] lineSeparator;
+
+    private long count = 0;
+
+    public LinePrinter(OutputStream out, Charset charset, String name, boolean lineNumbers, boolean countOnly) {
+        this.out = out;
+        this.charset = charset;
+        this.namePrefix = (name == null) ? new byte[0] : (name + ":").getBytes(charset);
+        this.lineNumbers = lineNumbers;
+        this.countOnly = countOnly;
+        this.lineSeparator = System.lineSeparator().getBytes(charset);
+    }
+
+    public void print(long lineNumber, byte[] bytes, int from, int to) throws IOException {
+        count++;
+        if (!countOnly) {
+            writePrefix(lineNumber);
+            out.write(bytes, from, to - from);
+            out.write(lineSeparator);
+        }
+    }
+
+    public void print(long lineNumber, String line) throws IOException {
+        final byte[] bytes = line.getBytes(charset);
+        print(lineNumber, bytes, 0, bytes.length);
+    }
+
+    public void finish() throws IOException {
+        if (countOnly) {
+            out.write(namePrefix);
+            out.write(String.valueOf(count).getBytes(charset));
+            out.write(lineSeparator);
+        }
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    private void writePrefix(long lineNumber) throws IOException {
+        out.write(namePrefix);
+        if (lineNumbers) {
+            out.write(String.valueOf(lineNumber).getBytes(charset));
+            out.write(':');
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Finds the selected lines in raw bytes. Lines are only copied or decoded by the handler and the matcher, so scanning
+ * non-matching lines does not allocate, and lines are only counted when line numbers are asked for.
+ */
+public class LineScanner {
+
+    private final LineMatcher matcher;
+    private final boolean invertMatch;
+    private final boolean countLines;
+
+    public LineScanner(LineMatcher matcher, boolean invertMatch, boolean countLines) {
+        this.matcher = matcher;
+        this.invertMatch = invertMatch;
+        this.countLines = countLines;
+    }
+
+    /**
+     * Reports the selected lines in bytes[from, to) to the handler, without their line terminators. The last line
+     * does not need to be terminated. Returns the number of lines scanned, or 0 if lines are not counted.
+     */
+    public int scan(byte[] bytes, int from, int to, LineHandler handler) {
+        final ByteBuffer words = ByteSearch.words(bytes);
+        if (matcher instanceof LiteralLineMatcher && !invertMatch) {
+            return scanForLiteral((LiteralLineMatcher) matcher, words, from, to, handler);
+        }
+
+        int lineIndex = 0;
+        int lineStart = from;
+        while (lineStart < to) {
+            final int newline = ByteSearch.indexOf(words, lineStart, to, (byte) '\n');
+            final int lineEnd = (newline == -1) ? to : newline;
+            final int contentEnd = stripCarriageReturn(bytes, lineStart, lineEnd);
+            if (matcher.matches(bytes, lineStart, contentEnd) != invertMatch) {
+                handler.onLine(lineIndex, bytes, lineStart, contentEnd);
+            }
+            lineIndex++;
+            lineStart = lineEnd + 1;
+        }
+
+        return countLines ? lineIndex : 0;
+    }
+
+    // Searches the whole region for the literal and only looks for line boundaries around the matches
+    private int scanForLiteral(LiteralLineMatcher literal, ByteBuffer words, int from, int to, LineHandler handler) {
+        final byte[] bytes = words.array();
+        int lineIndex = 0;
+        int position = from;
+        while (position < to) {
+            final int match = literal.indexOf(words, position, to);
+            if (match == -1) {
+                return countLines ? lineIndex + countLines(words, position, to) : 0;
+            }
+
+            final int previousNewline = ByteSearch.lastIndexOf(bytes, position, match, (byte) '\n');
+            final int lineStart = (previousNewline == -1) ? position : previousNewline + 1;
+            final int newline = ByteSearch.indexOf(words, match + literal.length(), to, (byte) '\n');
+            final int lineEnd = (newline == -1) ? to : newline;
+            if (countLines) {
+                lineIndex += ByteSearch.count(words, position, lineStart, (byte) '\n');
+            }
+            handler.onLine(lineIndex, bytes, lineStart, stripCarriageReturn(bytes, lineStart, lineEnd));
+            lineIndex++;
+            position = lineEnd + 1;
+        }
+
+        return countLines ? lineIndex : 0;
+    }
+
+    static int indexOfNewline(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int countLines(ByteBuffer words, int from, int to) {
+        if (from >= to) {
+            return 0;
+        } else {
+            return ByteSearch.count(words, from, to, (byte) '\n') + (words.get(to - 1) == '\n' ? 0 : 1);
+        }
+    }
+
+    private static int stripCarriageReturn(byte[] bytes, int lineStart, int lineEnd) {
+        return (lineEnd > lineStart && bytes[lineEnd - 1] == '\r') ? lineEnd - 1 : lineEnd;
+    }
+
+    public interface LineHandler {
+        void onLine(int lineIndex, byte[] bytes, int from, int to);
+    }
+}
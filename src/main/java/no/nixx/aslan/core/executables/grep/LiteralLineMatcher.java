@@ -0,0 +1,139 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Finds a fixed string in raw bytes. Large regions are searched eight bytes at a time for positions where both the
+ * first and the last byte of the literal occur, single lines with the Boyer-Moore-Horspool algorithm. Case is only
+ * folded for ASCII letters, so case insensitive matching requires an ASCII pattern.
+ */
+public class LiteralLineMatcher implements LineMatcher {
+
+    private static final byte[] identity = new byte[256];
+    private static final byte[] asciiLowerCase = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            identity[i] = (byte) i;
+            asciiLowerCase[i] = (byte) ((i >= 'A' && i <= 'Z') ? i | 0x20 : i);
+        }
+    }
+
+    private final String literal;
+    private final boolean ignoreCase;
+    private final byte[] fold;
+    private final byte[] needle;
+    private final int[] shift = new int[256];
+    private final long caseMask;
+    private final long firstBytes;
+    private final long lastBytes;
+
+    public LiteralLineMatcher(String literal, Charset charset, boolean ignoreCase) {
+        this.literal = literal;
+        this.ignoreCase = ignoreCase;
+        this.fold = ignoreCase ? asciiLowerCase : identity;
+        this.needle = literal.getBytes(charset);
+        for (int i = 0; i < needle.length; i++) {
+            needle[i] = fold[needle[i] & 0xff];
+        }
+
+        // Setting bit 5 maps upper case ASCII letters to lower case. It also merges some other pairs of bytes, which
+        // only adds candidates that are rejected when verified
+        final byte caseBit = (byte) (ignoreCase ? 0x20 : 0);
+        this.caseMask = ByteSearch.broadcast(caseBit);
+        this.firstBytes = (needle.length == 0) ? 0 : ByteSearch.broadcast((byte) (needle[0] | caseBit));
+        this.lastBytes = (needle.length == 0) ? 0 : ByteSearch.broadcast((byte) (needle[needle.length - 1] | caseBit));
+
+        for (int i = 0; i < shift.length; i++) {
+            shift[i] = Math.max(needle.length, 1);
+        }
+        for (int i = 0; i < needle.length - 1; i++) {
+            shift[needle[i] & 0xff] = needle.length - 1 - i;
+        }
+    }
+
+    public int length() {
+        return needle.length;
+    }
+
+    // Returns the index of the first occurrence of the literal in the viewed bytes[from, to), or -1
+    int indexOf(ByteBuffer words, int from, int to) {
+        final int last = needle.length - 1;
+        if (last < 0) {
+            return from;
+        }
+
+        final byte[] bytes = words.array();
+        int i = from;
+        for (; i + last + Long.BYTES <= to; i += Long.BYTES) {
+            final long first = (words.getLong(i) | caseMask) ^ firstBytes;
+            final long end = (words.getLong(i + last) | caseMask) ^ lastBytes;
+            long candidates = ByteSearch.zeroBytes(first | end);
+            while (candidates != 0) {
+                final int candidate = i + (Long.numberOfTrailingZeros(candidates) >>> 3);
+                if (matchesAt(bytes, candidate)) {
+                    return candidate;
+                }
+                candidates &= candidates - 1;
+            }
+        }
+
+        return indexOf(bytes, i, to);
+    }
+
+    private boolean matchesAt(byte[] bytes, int position) {
+        for (int j = 0; j < needle.length; j++) {
+            if (fold[bytes[position + j] & 0xff] != needle[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns the index of the first occurrence of the literal in bytes[from, to), or -1
+    public int indexOf(byte[] bytes, int from, int to) {
+        final int last = needle.length - 1;
+        if (last < 0) {
+            return from;
+        }
+
+        final byte lastByte = needle[last];
+        int i = from;
+        while (i + last < to) {
+            final byte b = fold[bytes[i + last] & 0xff];
+            if (b == lastByte) {
+                int j = last - 1;
+                while (j >= 0 && fold[bytes[i + j] & 0xff] == needle[j]) {
+                    j--;
+                }
+                if (j < 0) {
+                    return i;
+                }
+            }
+            i += shift[b & 0xff];
+        }
+
+        return -1;
+    }
+
+    @Override
+    public boolean matches(byte[] bytes, int from, int to) {
+        return indexOf(bytes, from, to) != -1;
+    }
+
+    @Override
+    public boolean matches(CharSequence line) {
+        final String s = line.toString();
+        if (!ignoreCase) {
+            return s.contains(literal);
+        }
+
+        for (int i = 0; i + literal.length() <= s.length(); i++) {
+            if (s.regionMatches(true, i, literal, 0, literal.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,114 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Matches lines against a regular expression. Lines given as bytes are matched through a reusable view when they are
+ * pure ASCII and decoded into a reusable buffer otherwise, so testing a line does not allocate. The reusable state is
+ * kept per thread since the file scanner matches chunks in parallel.
+ */
+public class RegexLineMatcher implements LineMatcher {
+
+    private final Pattern pattern;
+    private final ThreadLocal<State> state;
+
+    public RegexLineMatcher(Pattern pattern, Charset charset) {
+        this.pattern = pattern;
+        this.state = ThreadLocal.withInitial(() -> new State(pattern, charset));
+    }
+
+    @Override
+    public boolean matches(CharSequence line) {
+        return pattern.matcher(line).find();
+    }
+
+    @Override
+    public boolean matches(byte[] bytes, int from, int to) {
+        final State state = this.state.get();
+        return state.matcher.reset(state.view(bytes, from, to)).find();
+    }
+
+    private static class State {
+
+        private final Matcher matcher;
+        private final CharsetDecoder decoder;
+        private final AsciiCharSequence ascii = new AsciiCharSequence();
+        private CharBuffer decoded = CharBuffer.allocate(256);
+
+        State(Pattern pattern, Charset charset) {
+            this.matcher = pattern.matcher("");
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        CharSequence view(byte[] bytes, int from, int to) {
+            if (isAscii(bytes, from, to)) {
+                return ascii.set(bytes, from, to);
+            }
+
+            final int maxChars = (int) Math.ceil((to - from) * (double) decoder.maxCharsPerByte());
+            if (decoded.capacity() < maxChars) {
+                decoded = CharBuffer.allocate(maxChars);
+            }
+
+            decoded.clear();
+            decoder.reset();
+            decoder.decode(ByteBuffer.wrap(bytes, from, to - from), decoded, true);
+            decoder.flush(decoded);
+            decoded.flip();
+            return decoded;
+        }
+
+        private static boolean isAscii(byte[] bytes, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (bytes[i] < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class AsciiCharSequence implements CharSequence {
+
+        private byte[] bytes;
+        private int from;
+        private int to;
+
+        AsciiCharSequence set(byte[] bytes, int from, int to) {
+            this.bytes = bytes;
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return to - from;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes[from + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, from, to - from, US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package no.nixx.aslan.core.executables.grep;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Scans a stream in large raw buffers. Only the complete lines of each buffer are scanned and the partial line at the
+ * end is carried over to the next read, so neither the buffer nor the non-matching lines are ever decoded or copied.
+ * The printer is flushed whenever the next read would block, so matches are passed on as they are found.
+ */
+public class StreamScanner {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private final LineScanner scanner;
+
+    public StreamScanner(LineScanner scanner) {
+        this.scanner = scanner;
+    }
+
+    public void scan(InputStream in, LinePrinter printer) throws IOException {
+        final Handler handler = new Handler(printer);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int length = 0;
+        int searchFrom = 0;
+
+        try {
+            while (true) {
+                if (in.available() == 0) {
+                    // Let the next stage see the lines found so far while waiting for more input
+                    printer.flush();
+                }
+                final int bytesRead = in.read(buffer, length, buffer.length - length);
+                if (bytesRead == -1) {
+                    scanner.scan(buffer, 0, length, handler);
+                    return;
+                }
+                length += bytesRead;
+
+                final int completeLength = lastIndexOfNewline(buffer, searchFrom, length) + 1;
+                if (completeLength == 0) {
+                    // No complete line yet, make room for more of it
+                    searchFrom = length;
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                    continue;
+                }
+
+                handler.linesBefore += scanner.scan(buffer, 0, completeLength, handler);
+                System.arraycopy(buffer, completeLength, buffer, 0, length - completeLength);
+                length -= completeLength;
+                searchFrom = length;
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static int lastIndexOfNewline(byte[] bytes, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (bytes[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class Handler implements LineScanner.LineHandler {
+
+        private final LinePrinter printer;
+        private long linesBefore = 0;
+
+        Handler(LinePrinter printer) {
+            this.printer = printer;
+        }
+
+        @Override
+        public void onLine(int lineIndex, byte[] bytes, int from, int to) {
+            try {
+                printer.print(linesBefore + lineIndex + 1, bytes, from, to);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package no.nixx.aslan.core.executables.shellutils;
+
+import no.nixx.aslan.core.ExecutableMetadata;
+import no.nixx.aslan.core.Job;
+import no.nixx.aslan.core.JobTable;
+import no.nixx.aslan.core.ShellUtil;
+import no.nixx.aslan.core.ShellUtilExecutionContext;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+import static no.nixx.aslan.core.utils.ListUtils.firstOf;
+
+/**
+ * Waits for a job, by default the most recently started one, as if it had been run in the foreground. The output of
+ * the job keeps going where it went, and cancelling the pipeline running fg, like with Ctrl+C, cancels the job.
+ */
+@ExecutableMetadata(name = "fg")
+public class Fg implements ShellUtil {
+
+    private int exitStatus = 0;
+
+    @Override
+    public void run(ShellUtilExecutionContext context, List<String> args) {
+        final JobTable jobTable = context.getJobTable();
+        final Job job;
+        if (args.isEmpty()) {
+            job = jobTable.getCurrentJob();
+            if (job == null) {
+                throw new IllegalArgumentException("No current job");
+            }
+        } else if (args.size() == 1) {
+            job = jobTable.getJob(firstOf(args));
+        } else {
+            throw new IllegalArgumentException("Only one job can be brought to the foreground!");
+        }
+
+        final PrintWriter writer = new PrintWriter(context.output(), true);
+        writer.println(job.command);
+
+        try {
+            exitStatus = job.waitFor();
+        } catch (InterruptedException e) {
+            job.execution.cancel();
+            throw new RuntimeException(e);
+        }
+        jobTable.remove(job);
+    }
+
+    @Override
+    public int getExitStatus() {
+        return exitStatus;
+    }
+}
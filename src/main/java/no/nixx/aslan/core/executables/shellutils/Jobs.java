@@ -0,0 +1,38 @@
+package no.nixx.aslan.core.executables.shellutils;
+
+import no.nixx.aslan.core.ExecutableMetadata;
+import no.nixx.aslan.core.Job;
+import no.nixx.aslan.core.JobTable;
+import no.nixx.aslan.core.ShellUtil;
+import no.nixx.aslan.core.ShellUtilExecutionContext;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+@ExecutableMetadata(name = "jobs")
+public class Jobs implements ShellUtil {
+    @Override
+    public void run(ShellUtilExecutionContext context, List<String> args) {
+        if (!args.isEmpty()) {
+            throw new IllegalArgumentException("No arguments expected!");
+        }
+
+        final JobTable jobTable = context.getJobTable();
+        final PrintWriter printWriter = new PrintWriter(context.output());
+        for (Job job : jobTable.getJobs()) {
+            final boolean done = job.isDone();
+            printWriter.format("[%d] %-10s %s%n", job.id, job.getStatus(), job.command);
+
+            // Like in bash, finished jobs are reported once
+            if (done) {
+                jobTable.remove(job);
+            }
+        }
+        printWriter.flush();
+    }
+
+    @Override
+    public int getExitStatus() {
+        return 0;
+    }
+}
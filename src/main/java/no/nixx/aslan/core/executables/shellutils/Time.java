@@ -0,0 +1,25 @@
+package no.nixx.aslan.core.executables.shellutils;
+
+import no.nixx.aslan.core.ExecutableMetadata;
+import no.nixx.aslan.core.ShellUtil;
+import no.nixx.aslan.core.ShellUtilExecutionContext;
+
+import java.util.List;
+
+/**
+ * Times the pipeline it prefixes, as in "time cat build.log | grep ERROR". The executor runs the rest of the pipeline
+ * and prints the timings of each stage to the error stream when it is done, so this is only run when "time" is not
+ * the first command.
+ */
+@ExecutableMetadata(name = "time")
+public class Time implements ShellUtil {
+    @Override
+    public void run(ShellUtilExecutionContext context, List<String> args) {
+        throw new IllegalArgumentException("Only the first command of a pipeline can be timed");
+    }
+
+    @Override
+    public int getExitStatus() {
+        return 1;
+    }
+}
@@ -0,0 +1,45 @@
+package no.nixx.aslan.core.executables.shellutils;
+
+import no.nixx.aslan.core.ExecutableMetadata;
+import no.nixx.aslan.core.Job;
+import no.nixx.aslan.core.JobTable;
+import no.nixx.aslan.core.ShellUtil;
+import no.nixx.aslan.core.ShellUtilExecutionContext;
+
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Waits for the given jobs, or for all jobs, to finish. Like in bash, the exit status is that of the last job given, or
+ * 0 when waiting for all jobs.
+ */
+@ExecutableMetadata(name = "wait")
+public class Wait implements ShellUtil {
+
+    private int exitStatus = 0;
+
+    @Override
+    public void run(ShellUtilExecutionContext context, List<String> args) {
+        final JobTable jobTable = context.getJobTable();
+        final List<Job> jobs = args.isEmpty() ? jobTable.getJobs() : args.stream().map(jobTable::getJob).collect(toList());
+        for (Job job : jobs) {
+            final int jobExitStatus;
+            try {
+                jobExitStatus = job.waitFor();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            jobTable.remove(job);
+
+            if (!args.isEmpty()) {
+                exitStatus = jobExitStatus;
+            }
+        }
+    }
+
+    @Override
+    public int getExitStatus() {
+        return exitStatus;
+    }
+}
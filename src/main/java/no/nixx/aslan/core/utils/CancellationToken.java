@@ -0,0 +1,26 @@
+package no.nixx.aslan.core.utils;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tells long running work that its result is no longer wanted. The work checks the token at points where it is safe to
+ * stop, and gives up by throwing a CancellationException.
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+}
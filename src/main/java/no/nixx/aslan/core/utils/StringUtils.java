@@ -34,12 +34,22 @@ public class StringUtils {
         }
 
         final String sampleString = firstOf(strings);
-        final MutableInteger length = new MutableInteger();
-        while (strings.stream().allMatch(c -> c.length() >= length.value && c.startsWith(sampleString.substring(0, length.value)))) {
-            length.value++;
+        int length = sampleString.length();
+        for (String string : strings) {
+            length = getCommonStartLength(sampleString, string, length);
         }
 
-        return sampleString.substring(0, (length.value == 0) ? 0 : (length.value - 1));
+        return sampleString.substring(0, length);
+    }
+
+    // The length of the common start of the strings, looking no further than maximumLength
+    public static int getCommonStartLength(String a, String b, int maximumLength) {
+        final int length = Math.min(maximumLength, Math.min(a.length(), b.length()));
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
     }
 
     public static String completeOpenQuotes(String s) {
@@ -80,7 +90,8 @@ public class StringUtils {
     }
 
     public static boolean containsWhiteSpace(String s) {
-        for (char c : s.toCharArray()) {
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
             if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
                 return true;
             }
@@ -94,10 +105,6 @@ public class StringUtils {
     }
 }
 
-class MutableInteger {
-    public int value = 0;
-}
-
 class QuoteState {
     public final boolean inSingleQuotes;
     public final boolean inDoubleQuotes;
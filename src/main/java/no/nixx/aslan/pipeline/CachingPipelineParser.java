@@ -0,0 +1,84 @@
+package no.nixx.aslan.pipeline;
+
+import no.nixx.aslan.pipeline.model.Pipeline;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkArgument;
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * Keeps the most recently parsed pipelines by command text, so that running the same command again, or completing
+ * the same command line on every tab, does not parse it again. The pipeline model is immutable, so the cached
+ * pipelines can be handed out to any number of callers. Commands that fail to parse are not cached.
+ */
+public class CachingPipelineParser extends PipelineParser {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private final PipelineParser parser;
+    private final Map<String, Pipeline> cache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    public CachingPipelineParser() {
+        this(PipelineParser.newInstance(), DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CachingPipelineParser(int maximumSize) {
+        this(PipelineParser.newInstance(), maximumSize);
+    }
+
+    public CachingPipelineParser(PipelineParser parser, int maximumSize) {
+        checkArgument(maximumSize > 0);
+        this.parser = checkNotNull(parser);
+        this.cache = new LinkedHashMap<String, Pipeline>(16, 0.75f, true) {
+            private static final long serialVersionUID = 4736286416425208574L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Pipeline> eldest) {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    @Override
+    public Pipeline parseCommand(String cmd) {
+        synchronized (cache) {
+            final Pipeline pipeline = cache.get(cmd);
+            if (pipeline != null) {
+                hitCount.incrementAndGet();
+                return pipeline;
+            }
+        }
+
+        missCount.incrementAndGet();
+        final Pipeline pipeline = parser.parseCommand(cmd);
+        synchronized (cache) {
+            cache.put(cmd, pipeline);
+        }
+        return pipeline;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package no.nixx.aslan.pipeline;
+
+import no.nixx.aslan.pipeline.PipelineLexer.Modes;
+import no.nixx.aslan.pipeline.PipelineLexer.Token;
+import no.nixx.aslan.pipeline.PipelineLexer.TokenType;
+import no.nixx.aslan.pipeline.model.Command;
+import no.nixx.aslan.pipeline.model.Pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * Parses successive versions of the same command line, like the contents of the input field as the user types. The
+ * tokens and the top level commands of the previous version are kept. Only the edited region is lexed again, from the
+ * token where the edit starts until the lexer is back in step with the old tokens, and only the top level commands
+ * from the first edited token and onwards are parsed again.
+ *
+ * The resulting pipelines are the same as those of RecursiveDescentPipelineParser.
+ */
+public class IncrementalPipelineParser extends PipelineParser {
+
+    private String text = "";
+    private final List<Token> tokens = new ArrayList<>();
+
+    // The top level commands of the previous parse, with the index of the token following each of them
+    private final List<Command> commands = new ArrayList<>();
+    private final List<Integer> commandEnds = new ArrayList<>();
+
+    private Pipeline pipeline;
+    private boolean pipelineIsPartial;
+
+    @Override
+    public synchronized Pipeline parseCommand(String cmd) {
+        return parse(cmd, false);
+    }
+
+    /**
+     * Parses a command that is still being written. Unterminated quotes and substitutions are closed first, in the
+     * order given by the lexer modes at the end of the command.
+     */
+    public synchronized Pipeline parsePartialCommand(String cmd) {
+        return parse(cmd, true);
+    }
+
+    private Pipeline parse(String cmd, boolean partial) {
+        checkNotNull(cmd);
+        if (cmd.equals(text) && pipeline != null && pipelineIsPartial == partial) {
+            return pipeline;
+        }
+
+        final int firstChangedToken = relex(cmd);
+        pipeline = null;
+
+        final String input;
+        final List<Token> inputTokens;
+        final Modes modes = modesAfter(tokens);
+        if (partial && !modes.equals(Modes.DEFAULT)) {
+            input = cmd + modes.getStopText();
+            inputTokens = new ArrayList<>(tokens);
+            final PipelineLexer lexer = new PipelineLexer(input, cmd.length(), modes);
+            Token token;
+            while ((token = lexer.next()) != null) {
+                inputTokens.add(token);
+            }
+        } else {
+            input = cmd;
+            inputTokens = tokens;
+        }
+
+        // A command can be kept if neither the command nor the pipe following it has changed
+        int reusableCommands = 0;
+        while (reusableCommands < commands.size() && isUnchangedPipe(commandEnds.get(reusableCommands), firstChangedToken)) {
+            reusableCommands++;
+        }
+        commands.subList(reusableCommands, commands.size()).clear();
+        commandEnds.subList(reusableCommands, commandEnds.size()).clear();
+
+        final int firstToken = commandEnds.isEmpty() ? 0 : commandEnds.get(commandEnds.size() - 1) + 1;
+        final RecursiveDescentPipelineParser.Parser parser = new RecursiveDescentPipelineParser.Parser(input, inputTokens, firstToken);
+        do {
+            commands.add(parser.command());
+            commandEnds.add(parser.getIndex());
+        } while (parser.consumePipe());
+        final boolean background = parser.background();
+        parser.expectEnd();
+
+        pipeline = new Pipeline(new ArrayList<>(commands), background);
+        pipelineIsPartial = partial;
+        return pipeline;
+    }
+
+    private boolean isUnchangedPipe(int index, int firstChangedToken) {
+        return index < firstChangedToken && tokens.get(index).type == TokenType.PIPE;
+    }
+
+    // Updates the tokens to the new text and returns the index of the first token that might have changed
+    private int relex(String newText) {
+        final int prefix = commonPrefixLength(text, newText);
+        final int suffix = commonSuffixLength(text, newText, prefix);
+        final int newEditEnd = newText.length() - suffix;
+        final int delta = newText.length() - text.length();
+
+        // A token that ends where the edit starts might be extended by it
+        final int firstChangedToken = firstTokenEndingAtOrAfter(prefix);
+
+        final List<Token> oldTokens = new ArrayList<>(tokens.subList(firstChangedToken, tokens.size()));
+        tokens.subList(firstChangedToken, tokens.size()).clear();
+
+        // The last token always ends at the end of the text, so there are no old tokens only if there was no text
+        final int start = oldTokens.isEmpty() ? 0 : oldTokens.get(0).start;
+        final Modes modes = oldTokens.isEmpty() ? Modes.DEFAULT : oldTokens.get(0).modes;
+        final PipelineLexer lexer = new PipelineLexer(newText, start, modes);
+
+        int oldIndex = 0;
+        Token token;
+        while ((token = lexer.next()) != null) {
+            // Past the edit the lexer is back in step with the old tokens once it starts a token at the same position
+            // and in the same modes as one of them
+            if (token.start >= newEditEnd) {
+                while (oldIndex < oldTokens.size() && oldTokens.get(oldIndex).start + delta < token.start) {
+                    oldIndex++;
+                }
+                if (oldIndex < oldTokens.size() && oldTokens.get(oldIndex).start + delta == token.start && oldTokens.get(oldIndex).modes.equals(token.modes)) {
+                    for (Token oldToken : oldTokens.subList(oldIndex, oldTokens.size())) {
+                        tokens.add(oldToken.shift(delta));
+                    }
+                    break;
+                }
+            }
+            tokens.add(token);
+        }
+
+        text = newText;
+        return firstChangedToken;
+    }
+
+    private int firstTokenEndingAtOrAfter(int position) {
+        int low = 0;
+        int high = tokens.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (tokens.get(middle).stop < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Each token records the modes it was read in, so the modes at the end are found by reading the last one again
+    private Modes modesAfter(List<Token> tokens) {
+        if (tokens.isEmpty()) {
+            return Modes.DEFAULT;
+        } else {
+            final Token last = tokens.get(tokens.size() - 1);
+            final PipelineLexer lexer = new PipelineLexer(text, last.start, last.modes);
+            lexer.next();
+            return lexer.getModes();
+        }
+    }
+
+    private static int commonPrefixLength(String a, String b) {
+        final int length = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < length && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int commonSuffixLength(String a, String b, int prefixLength) {
+        final int length = Math.min(a.length(), b.length()) - prefixLength;
+        int i = 0;
+        while (i < length && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,291 @@
+package no.nixx.aslan.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Splits a command into the tokens of AslanPipelineLexer.g4. Each token records the lexer modes it was read in, so
+ * that lexing can be restarted at any token, which is what IncrementalPipelineParser does after an edit. Unlike the
+ * ANTLR lexer, characters that are not valid in a mode become INVALID tokens instead of being skipped.
+ */
+final class PipelineLexer {
+
+    enum TokenType {
+        LT_START, LT_TEXT, LT_STOP,
+        STR_START, STR_TEXT, STR_STOP,
+        CS_START, CS_STOP,
+        VS_START, VS_VARIABLE, VS_STOP,
+        PIPE, AMP, ARG, WS, DOLLAR, INVALID
+    }
+
+    enum Mode {
+        DEFAULT(""), LT("'"), STR("\""), CS(")"), VS("}");
+
+        // The text that leaves the mode
+        final String stop;
+
+        Mode(String stop) {
+            this.stop = stop;
+        }
+    }
+
+    static final class Token {
+        final TokenType type;
+        final int start;
+        final int stop;
+        final Modes modes;
+
+        Token(TokenType type, int start, int stop, Modes modes) {
+            this.type = type;
+            this.start = start;
+            this.stop = stop;
+            this.modes = modes;
+        }
+
+        Token shift(int delta) {
+            return (delta == 0) ? this : new Token(type, start + delta, stop + delta, modes);
+        }
+
+        @Override
+        public String toString() {
+            return type + "[" + start + "," + stop + ")";
+        }
+    }
+
+    /**
+     * An immutable stack of lexer modes. The default mode is always at the bottom.
+     */
+    static final class Modes {
+        static final Modes DEFAULT = new Modes(Mode.DEFAULT, null);
+
+        final Mode mode;
+        final Modes parent;
+
+        private Modes(Mode mode, Modes parent) {
+            this.mode = mode;
+            this.parent = parent;
+        }
+
+        Modes push(Mode mode) {
+            return new Modes(mode, this);
+        }
+
+        Modes pop() {
+            return (parent == null) ? this : parent;
+        }
+
+        // The text that leaves all the modes above the default mode
+        String getStopText() {
+            final StringBuilder sb = new StringBuilder();
+            for (Modes modes = this; modes != null; modes = modes.parent) {
+                sb.append(modes.mode.stop);
+            }
+            return sb.toString();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof Modes)) {
+                return false;
+            } else {
+                final Modes that = (Modes) o;
+                return mode == that.mode && Objects.equals(parent, that.parent);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * mode.hashCode() + Objects.hashCode(parent);
+        }
+    }
+
+    private final String input;
+    private int position;
+    private Modes modes;
+
+    PipelineLexer(String input) {
+        this(input, 0, Modes.DEFAULT);
+    }
+
+    PipelineLexer(String input, int position, Modes modes) {
+        this.input = input;
+        this.position = position;
+        this.modes = modes;
+    }
+
+    static List<Token> tokenize(String input) {
+        final List<Token> tokens = new ArrayList<>();
+        final PipelineLexer lexer = new PipelineLexer(input);
+        Token token;
+        while ((token = lexer.next()) != null) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    Modes getModes() {
+        return modes;
+    }
+
+    // Returns the next token, or null at the end of the input
+    Token next() {
+        if (position >= input.length()) {
+            return null;
+        }
+
+        final int start = position;
+        final Modes tokenModes = modes;
+        final TokenType type;
+        switch (modes.mode) {
+            case DEFAULT:
+            case CS:
+                type = nextInDefaultMode(modes.mode == Mode.CS);
+                break;
+            case LT:
+                type = nextInLiteralMode();
+                break;
+            case STR:
+                type = nextInStringMode();
+                break;
+            case VS:
+                type = nextInVariableSubstitutionMode();
+                break;
+            default:
+                throw new IllegalStateException("Unknown mode: " + modes.mode);
+        }
+        return new Token(type, start, position, tokenModes);
+    }
+
+    private TokenType nextInDefaultMode(boolean inCommandSubstitution) {
+        final char c = input.charAt(position);
+        switch (c) {
+            case '\'':
+                return push(TokenType.LT_START, Mode.LT, 1);
+            case '"':
+                return push(TokenType.STR_START, Mode.STR, 1);
+            case '$':
+                return substitutionStartOrDollar();
+            case '|':
+                position++;
+                return TokenType.PIPE;
+            case '&':
+                if (!inCommandSubstitution) {
+                    position++;
+                    return TokenType.AMP;
+                }
+                // In a command substitution & is an ordinary argument character
+                return argument(true);
+            case ' ':
+            case '\t':
+                while (position < input.length() && isSpace(input.charAt(position))) {
+                    position++;
+                }
+                return TokenType.WS;
+            case ')':
+                if (inCommandSubstitution) {
+                    return pop(TokenType.CS_STOP);
+                }
+                // Otherwise ) is an ordinary argument character
+                return argument(false);
+            default:
+                return argument(inCommandSubstitution);
+        }
+    }
+
+    private TokenType argument(boolean inCommandSubstitution) {
+        while (position < input.length() && !isArgumentStop(input.charAt(position), inCommandSubstitution)) {
+            position++;
+        }
+        return TokenType.ARG;
+    }
+
+    private TokenType nextInLiteralMode() {
+        if (input.charAt(position) == '\'') {
+            return pop(TokenType.LT_STOP);
+        }
+        while (position < input.length() && input.charAt(position) != '\'') {
+            position++;
+        }
+        return TokenType.LT_TEXT;
+    }
+
+    private TokenType nextInStringMode() {
+        final char c = input.charAt(position);
+        if (c == '"') {
+            return pop(TokenType.STR_STOP);
+        } else if (c == '$') {
+            return substitutionStartOrDollar();
+        }
+        while (position < input.length() && input.charAt(position) != '"' && input.charAt(position) != '$') {
+            position++;
+        }
+        return TokenType.STR_TEXT;
+    }
+
+    private TokenType nextInVariableSubstitutionMode() {
+        final char c = input.charAt(position);
+        if (c == '}') {
+            return pop(TokenType.VS_STOP);
+        } else if (!isVariableNameCharacter(c)) {
+            position++;
+            return TokenType.INVALID;
+        }
+        while (position < input.length() && isVariableNameCharacter(input.charAt(position))) {
+            position++;
+        }
+        return TokenType.VS_VARIABLE;
+    }
+
+    private TokenType substitutionStartOrDollar() {
+        if (input.startsWith("$(", position)) {
+            return push(TokenType.CS_START, Mode.CS, 2);
+        } else if (input.startsWith("${", position)) {
+            return push(TokenType.VS_START, Mode.VS, 2);
+        } else {
+            position++;
+            return TokenType.DOLLAR;
+        }
+    }
+
+    private TokenType push(TokenType type, Mode mode, int length) {
+        position += length;
+        modes = modes.push(mode);
+        return type;
+    }
+
+    private TokenType pop(TokenType type) {
+        position++;
+        modes = modes.pop();
+        return type;
+    }
+
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+    // ARG : ~["'|&$\t ]+ in the default mode, ~[)'"$|\t ]+ in a command substitution
+    private static boolean isArgumentStop(char c, boolean inCommandSubstitution) {
+        switch (c) {
+            case '"':
+            case '\'':
+            case '|':
+            case '$':
+            case '\t':
+            case ' ':
+                return true;
+            case '&':
+                return !inCommandSubstitution;
+            case ')':
+                return inCommandSubstitution;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isVariableNameCharacter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
@@ -62,6 +62,11 @@ public class PipelineListener extends AslanPipelineParserBaseListener {
         pipelineStack.push(new Pipeline());
     }
 
+    @Override
+    public void exitBackground(@NotNull AslanPipelineParser.BackgroundContext ctx) {
+        pipelineStack.push(pipelineStack.pop().inBackground());
+    }
+
     @Override
     public void enterCmd(@NotNull AslanPipelineParser.CmdContext ctx) {
         commandStack.push(new Command());
@@ -10,6 +10,24 @@ import static java.lang.String.format;
 
 public class PipelineParser {
 
+    public static final String IMPLEMENTATION_PROPERTY = "aslan.parser";
+
+    /**
+     * Returns the parser selected by the system property aslan.parser: "antlr" for this parser, or "recursive-descent",
+     * which is the default, for the hand-written RecursiveDescentPipelineParser.
+     */
+    public static PipelineParser newInstance() {
+        final String implementation = System.getProperty(IMPLEMENTATION_PROPERTY, "recursive-descent");
+        switch (implementation) {
+            case "antlr":
+                return new PipelineParser();
+            case "recursive-descent":
+                return new RecursiveDescentPipelineParser();
+            default:
+                throw new IllegalArgumentException("Unknown parser implementation: " + implementation);
+        }
+    }
+
     public Pipeline parseCommand(String cmd) {
         final AslanPipelineLexer lexer = new AslanPipelineLexer(new ANTLRInputStream(cmd));
         final AslanPipelineParser parser = new AslanPipelineParser(new BufferedTokenStream(lexer));
@@ -17,7 +35,7 @@ public class PipelineParser {
         parser.removeErrorListeners();
         parser.addParseListener(pipelineListener);
         parser.addErrorListener(new ErrorListener());
-        parser.pipeline();
+        parser.line();
 
         return pipelineListener.getPipeline();
     }
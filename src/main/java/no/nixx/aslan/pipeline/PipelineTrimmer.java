@@ -16,7 +16,7 @@ public class PipelineTrimmer {
         if (pipeline == null) {
             throw new IllegalArgumentException("Pipeline cannot be null!");
         } else {
-            return new Pipeline(getTrimmedCommands(pipeline.getCommands()));
+            return new Pipeline(getTrimmedCommands(pipeline.getCommands()), pipeline.isBackground());
         }
     }
 
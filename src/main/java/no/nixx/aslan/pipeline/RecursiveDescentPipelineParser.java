@@ -0,0 +1,235 @@
+package no.nixx.aslan.pipeline;
+
+import no.nixx.aslan.pipeline.PipelineLexer.Token;
+import no.nixx.aslan.pipeline.PipelineLexer.TokenType;
+import no.nixx.aslan.pipeline.model.Argument;
+import no.nixx.aslan.pipeline.model.ArgumentProperties;
+import no.nixx.aslan.pipeline.model.Command;
+import no.nixx.aslan.pipeline.model.CommandProperties;
+import no.nixx.aslan.pipeline.model.CommandSubstitution;
+import no.nixx.aslan.pipeline.model.CompositeArgument;
+import no.nixx.aslan.pipeline.model.Literal;
+import no.nixx.aslan.pipeline.model.Pipeline;
+import no.nixx.aslan.pipeline.model.QuotedString;
+import no.nixx.aslan.pipeline.model.VariableSubstitution;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Parses the grammar in AslanPipelineParser.g4 without ANTLR. The tokens come from PipelineLexer, and the trimmed
+ * pipeline is built directly, without going through PipelineListener and PipelineTrimmer. Syntax errors are reported
+ * at the same positions and with the same messages as the ANTLR parser.
+ */
+public class RecursiveDescentPipelineParser extends PipelineParser {
+
+    @Override
+    public Pipeline parseCommand(String cmd) {
+        final Parser parser = new Parser(cmd, PipelineLexer.tokenize(cmd), 0);
+        final Pipeline pipeline = parser.pipeline();
+        final boolean background = parser.background();
+        parser.expectEnd();
+        return background ? pipeline.inBackground() : pipeline;
+    }
+
+    static class Parser {
+
+        private final String input;
+        private final List<Token> tokens;
+        private int index;
+
+        Parser(String input, List<Token> tokens, int index) {
+            this.input = input;
+            this.tokens = tokens;
+            this.index = index;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        boolean consumePipe() {
+            if (lookingAt(TokenType.PIPE)) {
+                index++;
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        // background : AMP WS*
+        boolean background() {
+            if (!lookingAt(TokenType.AMP)) {
+                return false;
+            }
+
+            index++;
+            while (lookingAt(TokenType.WS)) {
+                index++;
+            }
+            return true;
+        }
+
+        void expectEnd() {
+            if (index < tokens.size()) {
+                throw syntaxError();
+            }
+        }
+
+        // pipeline : cmd (pipe cmd)*
+        Pipeline pipeline() {
+            final List<Command> commands = new ArrayList<>();
+            commands.add(command());
+            while (consumePipe()) {
+                commands.add(command());
+            }
+            return new Pipeline(commands);
+        }
+
+        // cmd : (arg | space)+, where adjacent args without space between them form one argument
+        Command command() {
+            final int startIndex = index;
+            final List<Argument> arguments = new ArrayList<>();
+            final List<Argument> adjacentArguments = new ArrayList<>();
+
+            scan:
+            while (index < tokens.size()) {
+                final Token token = tokens.get(index);
+                switch (token.type) {
+                    case WS:
+                        addArgument(arguments, adjacentArguments);
+                        index++;
+                        break;
+                    case LT_START:
+                        adjacentArguments.add(literal());
+                        break;
+                    case STR_START:
+                        adjacentArguments.add(quotedString());
+                        break;
+                    case CS_START:
+                        adjacentArguments.add(commandSubstitution());
+                        break;
+                    case VS_START:
+                        adjacentArguments.add(variableSubstitution());
+                        break;
+                    case ARG:
+                        adjacentArguments.add(new Literal(text(token), properties(token.start, token.stop)));
+                        index++;
+                        break;
+                    default:
+                        break scan;
+                }
+            }
+
+            if (index == startIndex) {
+                throw syntaxError();
+            }
+
+            addArgument(arguments, adjacentArguments);
+            final CommandProperties properties = new CommandProperties(tokens.get(startIndex).start, tokens.get(index - 1).stop);
+            return new Command(properties, arguments.toArray(new Argument[arguments.size()]));
+        }
+
+        // Reduces the adjacent arguments the same way PipelineTrimmer reduces a composite argument
+        private void addArgument(List<Argument> arguments, List<Argument> adjacentArguments) {
+            if (adjacentArguments.isEmpty()) {
+                return;
+            } else if (adjacentArguments.size() == 1) {
+                arguments.add(adjacentArguments.get(0));
+            } else {
+                final int startIndex = adjacentArguments.get(0).getStartIndex();
+                final int stopIndex = adjacentArguments.get(adjacentArguments.size() - 1).getStopIndex();
+                final ArgumentProperties properties = properties(startIndex, stopIndex);
+                if (adjacentArguments.stream().allMatch(Argument::isLiteral)) {
+                    final StringBuilder sb = new StringBuilder();
+                    for (Argument argument : adjacentArguments) {
+                        sb.append(((Literal) argument).text);
+                    }
+                    arguments.add(new Literal(sb.toString(), properties));
+                } else {
+                    arguments.add(new CompositeArgument(new ArrayList<>(adjacentArguments), properties));
+                }
+            }
+            adjacentArguments.clear();
+        }
+
+        // literal : LT_START LT_TEXT LT_STOP
+        private Literal literal() {
+            final Token start = expect(TokenType.LT_START);
+            final Token text = expect(TokenType.LT_TEXT);
+            final Token stop = expect(TokenType.LT_STOP);
+            return new Literal(text(text), properties(start.start, stop.stop));
+        }
+
+        // string : STR_START (cs | vs | text)* STR_STOP
+        private Argument quotedString() {
+            final Token start = expect(TokenType.STR_START);
+            final StringBuilder text = new StringBuilder();
+            final List<QuotedString.Component> components = new ArrayList<>();
+            while (!lookingAt(TokenType.STR_STOP)) {
+                if (lookingAt(TokenType.CS_START)) {
+                    components.add(new QuotedString.Component(text.length(), commandSubstitution()));
+                } else if (lookingAt(TokenType.VS_START)) {
+                    components.add(new QuotedString.Component(text.length(), variableSubstitution()));
+                } else if (lookingAt(TokenType.STR_TEXT) || lookingAt(TokenType.DOLLAR)) {
+                    text.append(text(tokens.get(index++)));
+                } else {
+                    throw syntaxError();
+                }
+            }
+            final Token stop = expect(TokenType.STR_STOP);
+
+            final ArgumentProperties properties = properties(start.start, stop.stop);
+            if (components.isEmpty()) {
+                return new Literal(text.toString(), properties);
+            } else {
+                return new QuotedString(text.toString(), components, properties);
+            }
+        }
+
+        // cs : CS_START pipeline CS_STOP
+        private CommandSubstitution commandSubstitution() {
+            final Token start = expect(TokenType.CS_START);
+            final Pipeline pipeline = pipeline();
+            final Token stop = expect(TokenType.CS_STOP);
+            return new CommandSubstitution(pipeline, properties(start.start, stop.stop));
+        }
+
+        // vs : VS_START VS_VARIABLE VS_STOP
+        private VariableSubstitution variableSubstitution() {
+            final Token start = expect(TokenType.VS_START);
+            final Token variable = expect(TokenType.VS_VARIABLE);
+            final Token stop = expect(TokenType.VS_STOP);
+            return new VariableSubstitution(text(variable), properties(start.start, stop.stop));
+        }
+
+        private Token expect(TokenType type) {
+            if (lookingAt(type)) {
+                return tokens.get(index++);
+            } else {
+                throw syntaxError();
+            }
+        }
+
+        private boolean lookingAt(TokenType type) {
+            return index < tokens.size() && tokens.get(index).type == type;
+        }
+
+        private String text(Token token) {
+            return input.substring(token.start, token.stop);
+        }
+
+        private ArgumentProperties properties(int startIndex, int stopIndex) {
+            return new ArgumentProperties(startIndex, stopIndex, input.substring(startIndex, stopIndex));
+        }
+
+        // ANTLR reports the position within the line of the offending token
+        private ParseException syntaxError() {
+            final int position = (index < tokens.size()) ? tokens.get(index).start : input.length();
+            final int positionInLine = position - (input.lastIndexOf('\n', position - 1) + 1);
+            return new ParseException(format("Syntax error at position %d: %s", positionInLine, input), null);
+        }
+    }
+}
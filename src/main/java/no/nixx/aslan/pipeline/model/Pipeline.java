@@ -10,27 +10,42 @@ import static no.nixx.aslan.core.utils.ListUtils.addElement;
 public class Pipeline {
 
     private final List<Command> commands;
+    private final boolean background;
 
     public Pipeline() {
-        this.commands = emptyList();
+        this(emptyList(), false);
     }
 
     public Pipeline(Command... commands) {
-        this.commands = unmodifiableList(asList(commands));
+        this(asList(commands), false);
     }
 
     public Pipeline(List<Command> commands) {
+        this(commands, false);
+    }
+
+    public Pipeline(List<Command> commands, boolean background) {
         this.commands = unmodifiableList(commands);
+        this.background = background;
     }
 
     public Pipeline addCommand(Command command) {
-        return new Pipeline(addElement(commands, command));
+        return new Pipeline(addElement(commands, command), background);
+    }
+
+    // A pipeline followed by & is run as a job, without the shell waiting for it
+    public Pipeline inBackground() {
+        return new Pipeline(commands, true);
     }
 
     public List<Command> getCommands() {
         return commands;
     }
 
+    public boolean isBackground() {
+        return background;
+    }
+
     public Command getCommandAtPosition(int position) {
         for (Command command : commands) {
             if (command.spansPosition(position)) {
@@ -51,6 +66,7 @@ public class Pipeline {
     public String toString() {
         return "Pipeline{" +
                 "commands=" + commands +
+                ", background=" + background +
                 '}';
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package no.nixx.aslan.ui;
 
+import javafx.animation.PauseTransition;
 import javafx.beans.binding.Bindings;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
@@ -10,6 +11,7 @@ import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.event.EventTarget;
 import javafx.geometry.Insets;
+import javafx.scene.Cursor;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
@@ -29,19 +31,30 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
 import javafx.scene.text.TextFlow;
+import javafx.util.Duration;
 import no.nixx.aslan.core.ExecutableLocatorImpl;
+import no.nixx.aslan.core.Job;
+import no.nixx.aslan.core.JobTable;
+import no.nixx.aslan.core.PipelineExecution;
 import no.nixx.aslan.core.PipelineExecutorImpl;
+import no.nixx.aslan.core.StageScheduler;
 import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.core.completion.AsyncCompletor;
 import no.nixx.aslan.core.completion.CompletionResult;
 import no.nixx.aslan.core.completion.Completor;
+import no.nixx.aslan.pipeline.CachingPipelineParser;
+import no.nixx.aslan.pipeline.IncrementalPipelineParser;
 import no.nixx.aslan.pipeline.ParseException;
 import no.nixx.aslan.pipeline.PipelineParser;
 import no.nixx.aslan.pipeline.model.Pipeline;
+import no.nixx.aslan.ui.component.linefragment.BatchingLineFragmentAdapter;
 import no.nixx.aslan.ui.component.linefragment.BufferItem;
 import no.nixx.aslan.ui.component.linefragment.Fragment;
 import no.nixx.aslan.ui.component.linefragment.Line;
-import no.nixx.aslan.ui.component.linefragment.LineFragmentAdapter;
 import no.nixx.aslan.ui.component.linefragment.LineFragmentOutputStream;
+import no.nixx.aslan.ui.component.linefragment.LinePublisher;
+import no.nixx.aslan.ui.component.linefragment.ScrollbackBuffer;
+import no.nixx.aslan.ui.component.linefragment.TaggedLineFragmentAdapter;
 import no.nixx.aslan.ui.component.ObservableCompositeList;
 import org.fxmisc.flowless.Cell;
 import org.fxmisc.flowless.VirtualFlow;
@@ -52,17 +65,21 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.nio.file.Path;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
+import static java.lang.String.format;
 import static java.lang.System.currentTimeMillis;
 import static java.util.stream.Collectors.toList;
 import static javafx.application.Platform.runLater;
-import static javafx.collections.FXCollections.observableArrayList;
 import static javafx.scene.input.KeyCode.L;
 import static javafx.scene.input.KeyCode.TAB;
 import static javafx.scene.layout.Priority.ALWAYS;
 import static javafx.scene.paint.Color.BLACK;
+import static javafx.scene.paint.Color.GRAY;
 import static javafx.scene.paint.Color.RED;
 import static no.nixx.aslan.core.utils.StringUtils.join;
 import static org.fxmisc.flowless.VirtualFlow.createVertical;
@@ -72,17 +89,24 @@ public class AslanShell extends VBox {
     private final static Background transparentBackground = new Background(new BackgroundFill(Color.TRANSPARENT, null, null));
     private final static Border transparentBorder = new Border(new BorderStroke(Color.TRANSPARENT, BorderStrokeStyle.NONE, CornerRadii.EMPTY, BorderWidths.EMPTY));
 
+    // Completions taking longer than this are shown to be in progress
+    private final static Duration completionLatencyBudget = Duration.millis(150);
+
     private final InputBox inputBox;
     private final Label prompt;
     private final TextField input;
     private final VirtualFlow<BufferItem, Cell<BufferItem, Node>> buffer;
     private final ObservableList<Line> bufferItems;
     private final ObservableList<BufferItem> bufferItemsWithInput;
-    private final ExecutorService threadPool = Executors.newFixedThreadPool(8);
-    private final PipelineParser parser = new PipelineParser();
+    private final StageScheduler stageScheduler = StageScheduler.preferVirtualThreads(Executors.newCachedThreadPool());
+    private final PipelineParser parser = new CachingPipelineParser();
+    private final AsyncCompletor completor = new AsyncCompletor(new Completor(new IncrementalPipelineParser()), Executors.newSingleThreadExecutor(AslanShell::createCompletionThread));
+    private final PauseTransition completionInProgress = new PauseTransition(completionLatencyBudget);
     private final ObservableExecutionContextFactory executionContextFactory = new ObservableExecutionContextFactory(new WorkingDirectoryImpl(System.getProperty("user.dir")));
 
     private Cell<BufferItem, Node> inputBoxCell;
+    private CompletableFuture<CompletionResult> pendingCompletion;
+    private PipelineExecution runningPipeline;
     private long previousKeyTimestamp = Long.MIN_VALUE;
     private KeyCode previousKeyCode = KeyCode.UNDEFINED;
 
@@ -98,9 +122,10 @@ public class AslanShell extends VBox {
         undecorate(input);
         runLater(input::requestFocus);
         inputBox = new InputBox(prompt, input);
+        completionInProgress.setOnFinished(event -> input.setCursor(Cursor.WAIT));
 
         // Buffer
-        bufferItems = observableArrayList();
+        bufferItems = ScrollbackBuffer.newInstance();
         bufferItemsWithInput = new ObservableCompositeList<>((ObservableList) bufferItems, FXCollections.<BufferItem>observableArrayList(inputBox));
         buffer = createVertical(bufferItemsWithInput, bufferItem -> new Cell<BufferItem, Node>() {
 
@@ -199,6 +224,9 @@ public class AslanShell extends VBox {
         getChildren().add(buffer);
     }
 
+    // Pipelines run in the background, with their output published to the buffer as it comes. Commands entered while
+    // a pipeline is running are left in the input, and Ctrl+C cancels it. Jobs started with & do not hold back the
+    // input, and each line of their output is tagged with the number of the job.
     private void executeCommand(ActionEvent actionEvent) {
         final String command = input.getText();
 
@@ -209,24 +237,53 @@ public class AslanShell extends VBox {
             throw new RuntimeException(parseException);
         }
 
-        addPromptAndCommandToBuffer(command);
+        if (runningPipeline != null && !pipeline.isBackground()) {
+            return;
+        }
+
+        addPromptAndCommandToBuffer(command, pipeline.isBackground());
         input.setText("");
 
+        if (pipeline.isBackground()) {
+            final JobTable jobTable = executionContextFactory.getJobTable();
+            jobTable.start(command, id -> startPipeline(pipeline, new Fragment(format("[%d] ", id), GRAY), writer -> {
+                // Jobs that have been waited for by fg or wait are already gone from the table, and not reported
+                final Job job = jobTable.getJob(id);
+                if (job != null) {
+                    writer.println(job.getStatus() + "  " + job.command);
+                    jobTable.remove(job);
+                }
+            }));
+        } else {
+            runningPipeline = startPipeline(pipeline, null, writer -> runningPipeline = null);
+        }
+    }
+
+    // The output is tagged when a tag is given. The completion handler is called on the JavaFX application thread,
+    // with a writer to the output of the pipeline that is still open.
+    private PipelineExecution startPipeline(Pipeline pipeline, Fragment tag, Consumer<PrintWriter> onCompletion) {
         final InputStream in = new ByteArrayInputStream(new byte[0]);
-        final OutputStream out = new LineFragmentOutputStream(bufferItems, new LineFragmentAdapter(bufferItems, BLACK));
-        final OutputStream err = new LineFragmentOutputStream(bufferItems, new LineFragmentAdapter(bufferItems, RED));
+        final LinePublisher publisher = new LinePublisher(bufferItems, LinePublisher.DEFAULT_MAXIMUM_PENDING_LINES);
+        final OutputStream out = new LineFragmentOutputStream(bufferItems, createAdapter(publisher, BLACK, tag));
+        final OutputStream err = new LineFragmentOutputStream(bufferItems, createAdapter(publisher, RED, tag));
+        publisher.start();
+
+        final PipelineExecutorImpl pipelineExecutor = new PipelineExecutorImpl(stageScheduler, new ExecutableLocatorImpl(), executionContextFactory, in, out, err);
+
+        final PipelineExecution execution = pipelineExecutor.start(pipeline);
+        execution.getResult().whenComplete((result, throwable) -> runLater(() -> {
+            if (throwable != null) {
+                final Throwable cause = (throwable instanceof CompletionException) ? throwable.getCause() : throwable;
+                final PrintWriter errPrintWriter = new PrintWriter(err);
+                errPrintWriter.println(cause.getMessage());
+                errPrintWriter.flush();
+            }
+//            history.add(command);
 
-        final PipelineExecutorImpl pipelineExecutor = new PipelineExecutorImpl(threadPool, new ExecutableLocatorImpl(), executionContextFactory, in, out, err);
+            final PrintWriter outPrintWriter = new PrintWriter(out);
+            onCompletion.accept(outPrintWriter);
+            outPrintWriter.flush();
 
-        try {
-            pipelineExecutor.execute(pipeline);
-//            history.add(command);
-        } catch (Exception exception) {
-            final PrintWriter errPrintWriter = new PrintWriter(err);
-            errPrintWriter.println(exception.getMessage());
-            errPrintWriter.flush();
-            throw new RuntimeException(exception);
-        } finally {
             try {
                 out.flush();
                 out.close();
@@ -235,29 +292,82 @@ public class AslanShell extends VBox {
             } catch (IOException e) {
                 e.printStackTrace();
             }
+            publisher.close();
+        }));
+        return execution;
+    }
+
+    private LineFragmentOutputStream.Adapter createAdapter(LinePublisher publisher, Color color, Fragment tag) {
+        if (tag == null) {
+            return new BatchingLineFragmentAdapter(publisher, color);
+        } else {
+            return new TaggedLineFragmentAdapter(publisher, color, tag);
         }
     }
 
-    private void addPromptAndCommandToBuffer(String command) {
-        bufferItems.addAll(
-                new Line(new Fragment(prompt.getText() + command, BLACK)),
-                new Line()
-        );
+    // The output of a pipeline in the foreground goes on the empty line after the command
+    private void addPromptAndCommandToBuffer(String command, boolean background) {
+        final Line commandLine = new Line(new Fragment(prompt.getText() + command, BLACK));
+        if (background) {
+            bufferItems.add(commandLine);
+        } else {
+            bufferItems.addAll(commandLine, new Line());
+        }
     }
 
+    // The completion runs in the background, and is only applied if the input is unchanged when it is done
     private void tabComplete() {
         final String command = input.getText();
         final int tabPosition = input.getCaretPosition();
+        final boolean isDoubleTab = isDoubleTab();
+
+        final CompletableFuture<CompletionResult> completion = completor.getCompletions(command, tabPosition, new ExecutableLocatorImpl(), executionContextFactory.createExecutionContext());
+        pendingCompletion = completion;
+        completionInProgress.playFromStart();
+
+        completion.whenComplete((result, exception) -> runLater(() -> {
+            if (completion != pendingCompletion) {
+                return;
+            }
+
+            stopCompletionInProgress();
+            if (exception != null) {
+                final Throwable cause = (exception instanceof CompletionException) ? exception.getCause() : exception;
+                if (cause instanceof CancellationException) {
+                    return;
+                } else {
+                    throw new RuntimeException(cause);
+                }
+            }
+
+            if (input.getText().equals(command) && input.getCaretPosition() == tabPosition) {
+                if (result.hasCompletionCandidates() && isDoubleTab) {
+                    bufferItems.add(new Line(new Fragment(join(result.completionCandidates, " "), BLACK)));
+                }
 
-        final Completor completor = new Completor();
-        final CompletionResult result = completor.getCompletions(command, tabPosition, new ExecutableLocatorImpl(), executionContextFactory.createExecutionContext());
+                input.setText(result.text);
+                input.positionCaret(result.tabPosition);
+            }
+        }));
+    }
 
-        if (result.hasCompletionCandidates() && isDoubleTab()) {
-            bufferItems.add(new Line(new Fragment(join(result.completionCandidates, " "), BLACK)));
+    private void cancelCompletion() {
+        if (pendingCompletion != null) {
+            completor.cancel();
+            stopCompletionInProgress();
         }
+    }
 
-        input.setText(result.text);
-        input.positionCaret(result.tabPosition);
+    private void stopCompletionInProgress() {
+        pendingCompletion = null;
+        completionInProgress.stop();
+        input.setCursor(Cursor.TEXT);
+    }
+
+    private static Thread createCompletionThread(Runnable runnable) {
+        final Thread thread = new Thread(runnable, "Completion");
+        thread.setDaemon(true);
+        return thread;
     }
 
     private boolean isDoubleTab() {
@@ -296,11 +406,19 @@ public class AslanShell extends VBox {
             bufferItems.clear();
             event.consume();
         } else if (controlIsDown && keyCode.equals(KeyCode.C)) {
-            input.clear();
+            if (runningPipeline != null) {
+                runningPipeline.cancel();
+            } else {
+                cancelCompletion();
+                input.clear();
+            }
             event.consume();
         } else if (keyCode.equals(TAB)) {
             tabComplete();
             event.consume();
+        } else if (!keyCode.isModifierKey()) {
+            // The user keeps typing, so a pending completion would be discarded anyway
+            cancelCompletion();
         }
 
         previousKeyTimestamp = currentTimeMillis();
@@ -9,6 +9,7 @@ import javafx.collections.ObservableMap;
 import no.nixx.aslan.api.ExecutionContext;
 import no.nixx.aslan.api.WorkingDirectory;
 import no.nixx.aslan.core.ExecutionContextFactory;
+import no.nixx.aslan.core.JobTable;
 import no.nixx.aslan.core.ShellUtilExecutionContext;
 
 import java.io.InputStream;
@@ -25,7 +26,9 @@ public class ObservableExecutionContextFactory implements ExecutionContextFactor
 
     private final SimpleObjectProperty<WorkingDirectory> workingDirectory;
     private final StringProperty workingDirectoryBasename = new SimpleStringProperty();
+    // Guarded by this, as the stages of pipelines and background jobs set variables from their own threads
     private final ObservableMap<String, String> variables = FXCollections.observableHashMap();
+    private final JobTable jobTable = new JobTable();
 
     public ObservableExecutionContextFactory(WorkingDirectory workingDirectory) {
         this.workingDirectory = new SimpleObjectProperty<>(workingDirectory);
@@ -48,11 +51,15 @@ public class ObservableExecutionContextFactory implements ExecutionContextFactor
         return variables;
     }
 
-    private boolean isVariableSet(String name) {
+    public JobTable getJobTable() {
+        return jobTable;
+    }
+
+    private synchronized boolean isVariableSet(String name) {
         return variables.containsKey(checkNotNull(name));
     }
 
-    private String getVariable(String name) {
+    private synchronized String getVariable(String name) {
         final String value = variables.get(name);
         if (value == null) {
             throw new IllegalArgumentException("No such variable: " + name);
@@ -61,7 +68,7 @@ public class ObservableExecutionContextFactory implements ExecutionContextFactor
         }
     }
 
-    public List<String> getVariableNames() {
+    public synchronized List<String> getVariableNames() {
         final ArrayList<String> variableList = new ArrayList<>(variables.keySet());
         Collections.sort(variableList);
         return variableList;
@@ -80,11 +87,11 @@ public class ObservableExecutionContextFactory implements ExecutionContextFactor
         }
     }
 
-    private void setVariable(String name, String value) {
+    private synchronized void setVariable(String name, String value) {
         variables.put(checkNotNull(name), checkNotNull(value));
     }
 
-    private void unsetVariable(String name) {
+    private synchronized void unsetVariable(String name) {
         if (variables.remove(name) == null) {
             throw new IllegalArgumentException("No such variable: " + name);
         }
@@ -229,6 +236,11 @@ public class ObservableExecutionContextFactory implements ExecutionContextFactor
             public void unsetVariable(String name) {
                 ObservableExecutionContextFactory.this.unsetVariable(name);
             }
+
+            @Override
+            public JobTable getJobTable() {
+                return jobTable;
+            }
         };
     }
 }
@@ -13,39 +13,73 @@ public class ObservableCompositeList<T> extends ObservableListBase<T> {
 
     private final List<ObservableList<T>> lists;
 
+    // The index of the first item of each list, with the total size at the end. Updated as the lists change.
+    private final int[] offsets;
+
     @SafeVarargs
     public ObservableCompositeList(ObservableList<T>... observableLists) {
         lists = Arrays.asList(observableLists);
+        offsets = new int[lists.size() + 1];
+        updateOffsets(0);
         addListChangeListeners();
     }
 
     @Override
     public T get(int index) {
-        for (int i = 0; i < lists.size(); i++) {
-            final ObservableList<T> list = lists.get(i);
-            final int offset = lists.subList(0, i).stream().mapToInt(List::size).sum();
-            if (index >= offset && index < (offset + list.size())) {
-                return list.get(index - offset);
-            }
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
         }
 
-        throw new IndexOutOfBoundsException(String.valueOf(index));
+        // Of several lists starting at the index, the item is in the last one, as the others are empty
+        int listIndex = Arrays.binarySearch(offsets, 0, lists.size(), index);
+        if (listIndex < 0) {
+            listIndex = -listIndex - 2;
+        } else {
+            while (listIndex + 1 < lists.size() && offsets[listIndex + 1] == index) {
+                listIndex++;
+            }
+        }
+        return lists.get(listIndex).get(index - offsets[listIndex]);
     }
 
     @Override
     public int size() {
-        return lists.stream().mapToInt(List::size).sum();
+        return offsets[lists.size()];
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        for (int i = 0; i < lists.size(); i++) {
+            final int index = lists.get(i).indexOf(o);
+            if (index >= 0) {
+                return offsets[i] + index;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    private void updateOffsets(int fromListIndex) {
+        for (int i = fromListIndex; i < lists.size(); i++) {
+            offsets[i + 1] = offsets[i] + lists.get(i).size();
+        }
     }
 
     private void addListChangeListeners() {
         for (int listIndex = 0; listIndex < lists.size(); listIndex++) {
             final ObservableList<T> list = lists.get(listIndex);
-            final int offset = lists.subList(0, listIndex).stream().mapToInt(List::size).sum();
+            final int changedListIndex = listIndex;
             list.addListener((ListChangeListener<T>) c -> {
+                updateOffsets(changedListIndex);
+                final int offset = offsets[changedListIndex];
                 beginChange();
                 while (c.next()) {
                     if (c.wasPermutated()) {
-                        nextPermutation(c.getFrom(), c.getTo(), getNewIndexes(offset, c));
+                        nextPermutation(offset + c.getFrom(), offset + c.getTo(), getNewIndexes(offset, c));
                     } else if (c.wasUpdated()) {
                         for (int pos = c.getFrom(); pos < c.getTo(); pos++) {
                             nextUpdate(offset + pos);
@@ -67,4 +101,4 @@ public class ObservableCompositeList<T> extends ObservableListBase<T> {
     private int[] getNewIndexes(int offset, ListChangeListener.Change<? extends T> c) {
         return range(c.getFrom(), c.getTo()).map(i -> offset + c.getPermutation(i)).toArray();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,39 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import javafx.scene.paint.Color;
+
+import java.util.List;
+
+/**
+ * Leaves the changes to the list to a LinePublisher, which can be shared by the output and error streams of a command
+ * to keep their lines in order.
+ */
+public class BatchingLineFragmentAdapter extends LineFragmentAdapter {
+
+    private final LinePublisher publisher;
+
+    public BatchingLineFragmentAdapter(LinePublisher publisher, Color color) {
+        super(publisher.getList(), color);
+        this.publisher = publisher;
+    }
+
+    @Override
+    public Line getLastLine(List<Line> list) {
+        return publisher.getLastLine();
+    }
+
+    @Override
+    public void addFragmentToLine(Fragment fragment, Line line) {
+        publisher.addFragmentToLine(fragment, line);
+    }
+
+    @Override
+    public void addLinesToList(List<Line> lines) {
+        publisher.addLinesToList(lines);
+    }
+
+    @Override
+    public void removeLastLineIfEmpty() {
+        publisher.removeLastLineIfEmpty();
+    }
+}
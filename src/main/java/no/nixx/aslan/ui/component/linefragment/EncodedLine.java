@@ -0,0 +1,12 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+// The characters of all fragments of a line, and for each fragment the offset of its end and the index of its color
+class EncodedLine {
+    final char[] text;
+    final int[] runs;
+
+    EncodedLine(char[] text, int[] runs) {
+        this.text = text;
+        this.runs = runs;
+    }
+}
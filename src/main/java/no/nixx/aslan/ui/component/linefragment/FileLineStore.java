@@ -0,0 +1,284 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.DELETE_ON_CLOSE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Keeps the lines in a temporary file, with the offset of each line in memory. The file is read through memory mapped
+ * segments, and only the most recently read lines are kept on the heap, which covers the lines on screen and those
+ * around them. Lines removed from the store leave their bytes in the file until the store is cleared, after which the
+ * file is written from the start again.
+ *
+ * Each line is written as the number of fragments, the end and color index of each fragment, a flag telling whether
+ * the characters are stored in one byte or two, and the characters.
+ */
+class FileLineStore implements LineStore, Closeable {
+
+    static final int DEFAULT_CACHE_SIZE = 1024;
+    static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int segmentSize;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private final Map<Integer, EncodedLine> cache;
+
+    // The offsets of the lines, from the first line at index first
+    private long[] offsets = new long[1024];
+    private int first;
+    private int count;
+
+    // The end of the bytes written to the file, and of those still in the write buffer after it
+    private long writtenPosition;
+    private long position;
+
+    FileLineStore() throws IOException {
+        this(Files.createTempFile("aslan-scrollback", ".lines"), DEFAULT_SEGMENT_SIZE, DEFAULT_CACHE_SIZE);
+    }
+
+    FileLineStore(Path file, int segmentSize, int cacheSize) throws IOException {
+        this.channel = FileChannel.open(file, READ, WRITE, DELETE_ON_CLOSE);
+        file.toFile().deleteOnExit();
+        this.segmentSize = segmentSize;
+        this.cache = new LinkedHashMap<Integer, EncodedLine>(16, 0.75f, true) {
+            private static final long serialVersionUID = 6002402452711916418L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, EncodedLine> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public EncodedLine get(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        // Cached by the absolute index, which does not change as lines are removed from the front
+        final int absoluteIndex = first + index;
+        EncodedLine line = cache.get(absoluteIndex);
+        if (line == null) {
+            line = read(offsets[absoluteIndex]);
+            cache.put(absoluteIndex, line);
+        }
+        return line;
+    }
+
+    // The line is written again at the end of the file, leaving the old bytes behind like a removed line
+    @Override
+    public void set(int index, EncodedLine line) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        offsets[first + index] = position;
+        cache.put(first + index, line);
+        write(line);
+    }
+
+    @Override
+    public void add(EncodedLine line) {
+        if (first + count == offsets.length) {
+            compactOffsets();
+        }
+        offsets[first + count] = position;
+        count++;
+        write(line);
+    }
+
+    @Override
+    public EncodedLine removeFirst() {
+        final EncodedLine line = get(0);
+        cache.remove(first);
+        first++;
+        count--;
+        return line;
+    }
+
+    @Override
+    public EncodedLine removeLast() {
+        final EncodedLine line = get(count - 1);
+        cache.remove(first + count - 1);
+        count--;
+        return line;
+    }
+
+    @Override
+    public EncodedLine remove(int index) {
+        final EncodedLine line = get(index);
+        System.arraycopy(offsets, first + index + 1, offsets, first + index, count - index - 1);
+        count--;
+        // The lines after it have moved, so they are cached by the wrong index
+        cache.clear();
+        return line;
+    }
+
+    @Override
+    public void clear() {
+        // The file is not truncated, as it cannot be while segments are mapped on some platforms. New lines are
+        // written from the start of the file again, and the mapped segments keep covering the same parts of it.
+        cache.clear();
+        writeBuffer.clear();
+        offsets = new long[1024];
+        first = 0;
+        count = 0;
+        writtenPosition = 0;
+        position = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void compactOffsets() {
+        if (first > offsets.length / 2) {
+            System.arraycopy(offsets, first, offsets, 0, count);
+            final Map<Integer, EncodedLine> cachedLines = new LinkedHashMap<>(cache);
+            cache.clear();
+            cachedLines.forEach((index, line) -> cache.put(index - first, line));
+            first = 0;
+        } else {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+    }
+
+    private void write(EncodedLine line) {
+        final boolean isLatin1 = isLatin1(line.text);
+        final int size = 4 + line.runs.length * 4 + 1 + line.text.length * (isLatin1 ? 1 : 2);
+        if (writeBuffer.remaining() < size) {
+            flushWriteBuffer();
+        }
+        final ByteBuffer buffer = (size <= writeBuffer.capacity()) ? writeBuffer : ByteBuffer.allocate(size);
+
+        buffer.putInt(line.runs.length / 2);
+        for (int run : line.runs) {
+            buffer.putInt(run);
+        }
+        buffer.put((byte) (isLatin1 ? 1 : 2));
+        for (char c : line.text) {
+            if (isLatin1) {
+                buffer.put((byte) c);
+            } else {
+                buffer.putChar(c);
+            }
+        }
+        position += size;
+
+        if (buffer != writeBuffer) {
+            buffer.flip();
+            writeFully(buffer);
+        }
+    }
+
+    private void flushWriteBuffer() {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                writtenPosition += channel.write(buffer, writtenPosition);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private EncodedLine read(long offset) {
+        final ByteBuffer header = readBytes(offset, 4);
+        final int fragments = header.getInt();
+        final ByteBuffer runsAndFlag = readBytes(offset + 4, fragments * 8 + 1);
+        final int[] runs = new int[fragments * 2];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = runsAndFlag.getInt();
+        }
+        final int bytesPerChar = runsAndFlag.get();
+
+        final char[] text = new char[(fragments == 0) ? 0 : runs[runs.length - 2]];
+        final ByteBuffer characters = readBytes(offset + 4 + fragments * 8 + 1, text.length * bytesPerChar);
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (bytesPerChar == 1) ? (char) (characters.get() & 0xff) : characters.getChar();
+        }
+        return new EncodedLine(text, runs);
+    }
+
+    // Reads from a mapped segment when the bytes are within one that is completely written
+    private ByteBuffer readBytes(long offset, int length) {
+        if (offset + length > writtenPosition) {
+            flushWriteBuffer();
+        }
+
+        final int segment = (int) (offset / segmentSize);
+        final long segmentStart = (long) segment * segmentSize;
+        final boolean withinSegment = offset + length <= segmentStart + segmentSize;
+        final boolean segmentIsWritten = segmentStart + segmentSize <= writtenPosition;
+        if (withinSegment && segmentIsWritten) {
+            final ByteBuffer buffer = getSegment(segment).duplicate();
+            buffer.position((int) (offset - segmentStart));
+            buffer.limit(buffer.position() + length);
+            return buffer.slice();
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, offset + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of scrollback file");
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private MappedByteBuffer getSegment(int segment) {
+        try {
+            while (segments.size() <= segment) {
+                segments.add(null);
+            }
+            if (segments.get(segment) == null) {
+                segments.set(segment, channel.map(FileChannel.MapMode.READ_ONLY, (long) segment * segmentSize, segmentSize));
+            }
+            return segments.get(segment);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean isLatin1(char[] text) {
+        for (char c : text) {
+            if (c > 0xff) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
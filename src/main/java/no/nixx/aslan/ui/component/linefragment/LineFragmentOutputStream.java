@@ -24,9 +24,14 @@ public class LineFragmentOutputStream extends ByteArrayOutputStream {
     @Override
     public void flush() {
         final List<Line> newLines = new ArrayList<>();
-        Line currentLine = lastOf(list);
+        Line currentLine = adapter.getLastLine(list);
 
         if (count > 0) {
+            if (currentLine == null) {
+                currentLine = createNewLine();
+                newLines.add(currentLine);
+            }
+
             final String content = toString();
             final StringBuilder buffer = new StringBuilder();
             for (char c : content.toCharArray()) {
@@ -35,7 +40,7 @@ public class LineFragmentOutputStream extends ByteArrayOutputStream {
                 } else if (c == '\n') {
                     final Fragment fragment = createNewFragment(buffer.toString());
                     if (!fragmentIsEmpty(fragment)) {
-                        addFragmentToLine(fragment, currentLine);
+                        addFragmentToLine(fragment, currentLine, newLines);
                     }
 
                     final Line newLine = createNewLine();
@@ -50,7 +55,7 @@ public class LineFragmentOutputStream extends ByteArrayOutputStream {
 
             final Fragment fragment = createNewFragment(buffer.toString());
             if (!fragmentIsEmpty(fragment)) {
-                addFragmentToLine(fragment, currentLine);
+                addFragmentToLine(fragment, currentLine, newLines);
             }
 
             addLinesToList(newLines);
@@ -68,8 +73,13 @@ public class LineFragmentOutputStream extends ByteArrayOutputStream {
         adapter.removeLastLineIfEmpty();
     }
 
-    private void addFragmentToLine(Fragment fragment, Line line) {
-        adapter.addFragmentToLine(fragment, line);
+    // The new lines are not in the list yet, so only the line that was last when flushing started is shared
+    private void addFragmentToLine(Fragment fragment, Line line, List<Line> newLines) {
+        if (!newLines.isEmpty() && lastOf(newLines) == line) {
+            line.add(fragment);
+        } else {
+            adapter.addFragmentToLine(fragment, line);
+        }
     }
 
     private void addLinesToList(List<Line> lines) {
@@ -99,6 +109,11 @@ public class LineFragmentOutputStream extends ByteArrayOutputStream {
             return new Fragment(text);
         }
 
+        // Returns the line that output without a newline goes to, or null to start the output on a new line
+        default Line getLastLine(List<Line> list) {
+            return lastOf(list);
+        }
+
         default boolean lineIsEmpty(Line line) {
             return line.isEmpty();
         }
@@ -0,0 +1,217 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static no.nixx.aslan.core.utils.ListUtils.lastOf;
+import static no.nixx.aslan.core.utils.Preconditions.checkArgument;
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * Collects the changes that output streams on other threads make to a list of lines, and applies them to the list on
+ * the JavaFX application thread at most once per frame. New lines from consecutive writes are added to the list in one
+ * go, and fragments written to a line that has not been added yet are put straight into it.
+ *
+ * Writers are held back while the number of lines waiting to be added is at the maximum, for as long as the application
+ * thread keeps publishing. When it has not published for a while, like when it is busy with something else, there is
+ * nothing to gain from waiting and the lines are queued anyway.
+ *
+ * When the list is a ScrollbackBuffer, the line that writes go to is held in it until the publisher moves on to
+ * another line or is closed, since other publishers might add lines after it in the meantime.
+ */
+public class LinePublisher {
+
+    public static final int DEFAULT_MAXIMUM_PENDING_LINES = 10_000;
+
+    private static final long STALLED_AFTER_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+
+    private final List<Line> list;
+    private final int maximumPendingLines;
+
+    private List<Runnable> pendingChanges = new ArrayList<>();
+    private List<Line> pendingLines;
+    private int pendingLineCount;
+    private Line lastLine;
+    // The line held in the list, only used on the thread that owns the list
+    private Line heldLine;
+
+    private Thread publishingThread;
+    private long lastPublished = System.nanoTime();
+    private AnimationTimer timer;
+    private boolean closed;
+
+    // Must be created on the thread that owns the list
+    public LinePublisher(List<Line> list, int maximumPendingLines) {
+        checkArgument(maximumPendingLines > 0);
+        this.list = checkNotNull(list);
+        this.maximumPendingLines = maximumPendingLines;
+        this.lastLine = list.isEmpty() ? null : lastOf(list);
+        hold(lastLine);
+    }
+
+    public List<Line> getList() {
+        return list;
+    }
+
+    /**
+     * Starts publishing on every frame. Must be called on the JavaFX application thread.
+     */
+    public void start() {
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                publish();
+            }
+        };
+        timer.start();
+    }
+
+    /**
+     * Stops publishing once the changes made so far have been published.
+     */
+    public synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * Returns the line that writes without a newline go to, taking the pending changes into account.
+     */
+    public synchronized Line getLastLine() {
+        return lastLine;
+    }
+
+    public synchronized void addFragmentToLine(Fragment fragment, Line line) {
+        // Streams only write to the last line, so a line that has not been added yet is the last pending one
+        if (pendingLines != null && lastOf(pendingLines) == line) {
+            line.add(fragment);
+        } else {
+            addChange(() -> line.add(fragment));
+        }
+    }
+
+    public synchronized void addLinesToList(List<Line> lines) {
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        awaitCapacity();
+        if (pendingLines == null) {
+            final List<Line> batch = new ArrayList<>();
+            addChange(() -> {
+                list.addAll(batch);
+                hold(lastOf(batch));
+            });
+            pendingLines = batch;
+        }
+        pendingLines.addAll(lines);
+        pendingLineCount += lines.size();
+        lastLine = lastOf(lines);
+    }
+
+    public synchronized void removeLastLineIfEmpty() {
+        removeLastLineIf(Line::isEmpty);
+    }
+
+    /**
+     * Removes the line that writes without a newline go to, if it matches the predicate once the changes before it
+     * have been applied. Other publishers might add lines to the same list, so the line is looked up rather than assumed
+     * to be the last one.
+     */
+    public synchronized void removeLastLineIf(Predicate<Line> predicate) {
+        addChange(() -> {
+            if (lastLine != null && predicate.test(lastLine)) {
+                final int index = indexOfLastLine();
+                if (index >= 0) {
+                    list.remove(index);
+                    lastLine = list.isEmpty() ? null : lastOf(list);
+                    hold(lastLine);
+                }
+            }
+        });
+    }
+
+    /**
+     * Applies the pending changes to the list. Must be called on the thread that owns the list.
+     */
+    public synchronized void publish() {
+        publishingThread = Thread.currentThread();
+        lastPublished = System.nanoTime();
+
+        final List<Runnable> changes = pendingChanges;
+        pendingChanges = new ArrayList<>();
+        pendingLines = null;
+        pendingLineCount = 0;
+        notifyAll();
+
+        changes.forEach(Runnable::run);
+
+        if (closed) {
+            hold(null);
+        }
+        if (closed && timer != null) {
+            timer.stop();
+            timer = null;
+        }
+    }
+
+    public synchronized int getPendingLineCount() {
+        return pendingLineCount;
+    }
+
+    // Releases the line held before, if any, and holds the given one unless it is null
+    private void hold(Line line) {
+        if (line == heldLine || !(list instanceof ScrollbackBuffer)) {
+            return;
+        }
+
+        final ScrollbackBuffer buffer = (ScrollbackBuffer) list;
+        if (heldLine != null) {
+            buffer.release(heldLine);
+        }
+        heldLine = line;
+        if (line != null) {
+            buffer.hold(line);
+        }
+    }
+
+    // Lines are compared by identity, as empty lines are equal
+    private int indexOfLastLine() {
+        if (list instanceof ScrollbackBuffer) {
+            // Finds the line without decoding the lines after it
+            return ((ScrollbackBuffer) list).indexOfLiveLine(lastLine);
+        }
+
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i) == lastLine) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // A change to a line or the list ends the current batch of new lines, to keep the changes in order
+    private void addChange(Runnable change) {
+        pendingChanges.add(change);
+        pendingLines = null;
+    }
+
+    private void awaitCapacity() {
+        while (pendingLineCount >= maximumPendingLines && Thread.currentThread() != publishingThread) {
+            final long sinceLastPublished = System.nanoTime() - lastPublished;
+            if (sinceLastPublished >= STALLED_AFTER_NANOS) {
+                return;
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, STALLED_AFTER_NANOS - sinceLastPublished);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
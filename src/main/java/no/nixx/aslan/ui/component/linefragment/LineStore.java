@@ -0,0 +1,22 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+// Where ScrollbackBuffer keeps every line but the last. Lines are added at the end, and mostly removed from either end.
+interface LineStore {
+
+    int size();
+
+    EncodedLine get(int index);
+
+    void set(int index, EncodedLine line);
+
+    void add(EncodedLine line);
+
+    EncodedLine removeFirst();
+
+    EncodedLine removeLast();
+
+    // Moves the lines after the removed one, so it is only meant for the odd line in between
+    EncodedLine remove(int index);
+
+    void clear();
+}
@@ -0,0 +1,75 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import java.util.Arrays;
+
+// Keeps a fixed number of lines in memory
+class RingLineStore implements LineStore {
+
+    private final EncodedLine[] lines;
+    private int head;
+    private int count;
+
+    RingLineStore(int capacity) {
+        this.lines = new EncodedLine[capacity];
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public EncodedLine get(int index) {
+        return lines[(head + index) % lines.length];
+    }
+
+    @Override
+    public void set(int index, EncodedLine line) {
+        lines[(head + index) % lines.length] = line;
+    }
+
+    @Override
+    public void add(EncodedLine line) {
+        if (count == lines.length) {
+            throw new IllegalStateException("The store is full");
+        }
+        lines[(head + count) % lines.length] = line;
+        count++;
+    }
+
+    @Override
+    public EncodedLine removeFirst() {
+        final EncodedLine line = lines[head];
+        lines[head] = null;
+        head = (head + 1) % lines.length;
+        count--;
+        return line;
+    }
+
+    @Override
+    public EncodedLine removeLast() {
+        final int index = (head + count - 1) % lines.length;
+        final EncodedLine line = lines[index];
+        lines[index] = null;
+        count--;
+        return line;
+    }
+
+    @Override
+    public EncodedLine remove(int index) {
+        final EncodedLine line = get(index);
+        for (int i = index; i < count - 1; i++) {
+            lines[(head + i) % lines.length] = lines[(head + i + 1) % lines.length];
+        }
+        lines[(head + count - 1) % lines.length] = null;
+        count--;
+        return line;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(lines, null);
+        head = 0;
+        count = 0;
+    }
+}
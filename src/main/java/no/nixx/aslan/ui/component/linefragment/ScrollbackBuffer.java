@@ -0,0 +1,327 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import javafx.collections.ObservableListBase;
+import javafx.scene.paint.Color;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkArgument;
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * An observable list of lines holding at most a given number of lines, dropping the oldest lines as new ones are
+ * added. The lines are kept in a LineStore, each as the characters of the line and the end and color of each fragment,
+ * and Line objects are created again when they are asked for, which the cells of the shell do for the lines on screen.
+ * The last line is kept as it is, since output streams add fragments to it after it has been added. So are the lines
+ * held by a LinePublisher, as its streams keep writing to their line while other publishers add lines after it, and
+ * they are only encoded again once released.
+ *
+ * Lines can only be added at the end. Removing a line other than the first or the last moves the lines after it.
+ */
+public class ScrollbackBuffer extends ObservableListBase<Line> {
+
+    public static final String MAXIMUM_SIZE_PROPERTY = "aslan.scrollback";
+    public static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+    public static final String SPILL_PROPERTY = "aslan.scrollback.spill";
+
+    private final int maximumSize;
+
+    // The lines before the last one, from the oldest
+    private final LineStore lines;
+    private Line lastLine;
+
+    // The number of holds on each held line, and the held lines before the last one by their position, which counts
+    // from the first line ever added so that it does not change as the oldest lines are dropped
+    private final Map<Line, Integer> holds = new IdentityHashMap<>();
+    private final Map<Long, Line> liveLines = new HashMap<>();
+    private long firstPosition;
+
+    private final List<Color> colors = new ArrayList<>();
+    private final Map<Color, Integer> colorIndexes = new HashMap<>();
+
+    public ScrollbackBuffer(int maximumSize) {
+        this(maximumSize, new RingLineStore(maximumSize - 1));
+    }
+
+    ScrollbackBuffer(int maximumSize, LineStore lines) {
+        checkArgument(maximumSize > 0);
+        this.maximumSize = maximumSize;
+        this.lines = checkNotNull(lines);
+    }
+
+    /**
+     * Returns a buffer holding the number of lines given by the aslan.scrollback system property, or the default. When
+     * the aslan.scrollback.spill system property is true, the lines are kept in a temporary file instead of in memory,
+     * and there is no limit on the number of lines unless one is given.
+     */
+    public static ScrollbackBuffer newInstance() {
+        if (Boolean.getBoolean(SPILL_PROPERTY)) {
+            try {
+                return new ScrollbackBuffer(Integer.getInteger(MAXIMUM_SIZE_PROPERTY, Integer.MAX_VALUE), new FileLineStore());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        } else {
+            return new ScrollbackBuffer(Integer.getInteger(MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE));
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    @Override
+    public Line get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        } else if (index == lines.size()) {
+            return lastLine;
+        } else {
+            final Line liveLine = liveLines.isEmpty() ? null : liveLines.get(firstPosition + index);
+            return (liveLine != null) ? liveLine : decode(lines.get(index));
+        }
+    }
+
+    @Override
+    public int size() {
+        return (lastLine == null) ? 0 : lines.size() + 1;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Line)) {
+            return -1;
+        } else if (o == lastLine) {
+            return lines.size();
+        } else {
+            return super.indexOf(o);
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean add(Line line) {
+        add(size(), line);
+        return true;
+    }
+
+    @Override
+    public void add(int index, Line line) {
+        checkNotNull(line);
+        if (index != size()) {
+            throw new UnsupportedOperationException("Lines can only be added at the end");
+        }
+
+        beginChange();
+        try {
+            append(line);
+        } finally {
+            endChange();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Line> newLines) {
+        if (newLines.isEmpty()) {
+            return false;
+        }
+
+        beginChange();
+        try {
+            for (Line line : newLines) {
+                append(checkNotNull(line));
+            }
+        } finally {
+            endChange();
+        }
+        return true;
+    }
+
+    @Override
+    public Line remove(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        beginChange();
+        try {
+            if (index == lines.size()) {
+                return removeLast();
+            } else if (index == 0) {
+                return removeFirst();
+            } else {
+                return removeBetween(index);
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    @Override
+    public void clear() {
+        if (lastLine == null) {
+            return;
+        }
+
+        final List<Line> removed = new ArrayList<>(this);
+        lines.clear();
+        liveLines.clear();
+        lastLine = null;
+
+        beginChange();
+        nextRemove(0, removed);
+        endChange();
+    }
+
+    /**
+     * Keeps the line as it is until it is released, so that fragments added to it are not lost when other lines are
+     * added after it. A line can be held more than once, and is released by the last release.
+     */
+    void hold(Line line) {
+        holds.merge(checkNotNull(line), 1, Integer::sum);
+    }
+
+    void release(Line line) {
+        final Integer count = holds.remove(checkNotNull(line));
+        if (count == null) {
+            return;
+        } else if (count > 1) {
+            holds.put(line, count - 1);
+            return;
+        }
+
+        final long position = positionOfLiveLine(line);
+        if (position >= 0) {
+            liveLines.remove(position);
+            lines.set((int) (position - firstPosition), encode(line));
+        }
+    }
+
+    /**
+     * Returns the index of the last line or a held line, or -1 for any other line. Unlike indexOf, lines are compared
+     * by identity and no line is decoded.
+     */
+    int indexOfLiveLine(Line line) {
+        if (line != null && line == lastLine) {
+            return lines.size();
+        }
+
+        final long position = positionOfLiveLine(line);
+        return (position < 0) ? -1 : (int) (position - firstPosition);
+    }
+
+    private long positionOfLiveLine(Line line) {
+        for (Map.Entry<Long, Line> entry : liveLines.entrySet()) {
+            if (entry.getValue() == line) {
+                return entry.getKey();
+            }
+        }
+        return -1;
+    }
+
+    // Must be called between beginChange() and endChange()
+    private void append(Line line) {
+        if (size() == maximumSize) {
+            removeFirst();
+        }
+        if (lastLine != null) {
+            if (holds.containsKey(lastLine)) {
+                liveLines.put(firstPosition + lines.size(), lastLine);
+            }
+            lines.add(encode(lastLine));
+        }
+        lastLine = line;
+        nextAdd(lines.size(), lines.size() + 1);
+    }
+
+    private Line removeFirst() {
+        final Line removed;
+        if (lines.size() == 0) {
+            removed = lastLine;
+            lastLine = null;
+        } else {
+            removed = decodeOrLive(lines.removeFirst(), firstPosition);
+            firstPosition++;
+        }
+        nextRemove(0, removed);
+        return removed;
+    }
+
+    private Line removeLast() {
+        final Line removed = lastLine;
+        if (lines.size() == 0) {
+            lastLine = null;
+        } else {
+            final long position = firstPosition + lines.size() - 1;
+            lastLine = decodeOrLive(lines.removeLast(), position);
+        }
+        nextRemove(size(), removed);
+        return removed;
+    }
+
+    private Line removeBetween(int index) {
+        final long position = firstPosition + index;
+        final Line removed = decodeOrLive(lines.remove(index), position);
+        if (!liveLines.isEmpty()) {
+            final Map<Long, Line> movedLines = new HashMap<>();
+            liveLines.forEach((livePosition, line) -> movedLines.put((livePosition > position) ? livePosition - 1 : livePosition, line));
+            liveLines.clear();
+            liveLines.putAll(movedLines);
+        }
+        nextRemove(index, removed);
+        return removed;
+    }
+
+    // Returns the held line at the position if there is one, and forgets its position as it is no longer in the list
+    private Line decodeOrLive(EncodedLine encodedLine, long position) {
+        final Line liveLine = liveLines.isEmpty() ? null : liveLines.remove(position);
+        return (liveLine != null) ? liveLine : decode(encodedLine);
+    }
+
+    private EncodedLine encode(Line line) {
+        int length = 0;
+        for (Fragment fragment : line) {
+            length += fragment.text.length();
+        }
+
+        final char[] text = new char[length];
+        final int[] runs = new int[line.size() * 2];
+        int offset = 0;
+        for (int i = 0; i < line.size(); i++) {
+            final Fragment fragment = line.get(i);
+            fragment.text.getChars(0, fragment.text.length(), text, offset);
+            offset += fragment.text.length();
+            runs[i * 2] = offset;
+            runs[i * 2 + 1] = getColorIndex(fragment.color);
+        }
+        return new EncodedLine(text, runs);
+    }
+
+    private Line decode(EncodedLine encodedLine) {
+        final Line line = new Line();
+        int start = 0;
+        for (int i = 0; i < encodedLine.runs.length; i += 2) {
+            final int end = encodedLine.runs[i];
+            line.add(new Fragment(new String(encodedLine.text, start, end - start), colors.get(encodedLine.runs[i + 1])));
+            start = end;
+        }
+        return line;
+    }
+
+    private int getColorIndex(Color color) {
+        return colorIndexes.computeIfAbsent(color, c -> {
+            colors.add(c);
+            return colors.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,49 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import javafx.scene.paint.Color;
+
+import java.util.List;
+
+import static no.nixx.aslan.core.utils.Preconditions.checkNotNull;
+
+/**
+ * Starts every line with a tag, so that the output of jobs running at the same time can be told apart. The output
+ * and error streams of a job share the tag, and a line is only continued if it starts with the very same tag
+ * fragment, so the output of a job never ends up on a line of someone else.
+ */
+public class TaggedLineFragmentAdapter extends BatchingLineFragmentAdapter {
+
+    private final LinePublisher publisher;
+    private final Fragment tag;
+
+    public TaggedLineFragmentAdapter(LinePublisher publisher, Color color, Fragment tag) {
+        super(publisher, color);
+        this.publisher = publisher;
+        this.tag = checkNotNull(tag);
+    }
+
+    @Override
+    public Line createLine() {
+        return new Line(tag);
+    }
+
+    @Override
+    public Line getLastLine(List<Line> list) {
+        final Line lastLine = super.getLastLine(list);
+        return isTagged(lastLine) ? lastLine : null;
+    }
+
+    @Override
+    public boolean lineIsEmpty(Line line) {
+        return isTagged(line) && line.size() == 1;
+    }
+
+    @Override
+    public void removeLastLineIfEmpty() {
+        publisher.removeLastLineIf(this::lineIsEmpty);
+    }
+
+    private boolean isTagged(Line line) {
+        return line != null && !line.isEmpty() && line.get(0) == tag;
+    }
+}
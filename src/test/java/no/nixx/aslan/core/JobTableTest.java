@@ -0,0 +1,75 @@
+package no.nixx.aslan.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class JobTableTest {
+
+    @Test
+    public void testJobsAreNumberedFromTheHighestNumber() {
+        final JobTable jobTable = new JobTable();
+        final Job first = jobTable.start("first", id -> createExecution());
+        final Job second = jobTable.start("second", id -> createExecution());
+        assertEquals(1, first.id);
+        assertEquals(2, second.id);
+
+        jobTable.remove(first);
+        assertEquals(3, jobTable.start("third", id -> createExecution()).id);
+        assertEquals(asList(2, 3), jobTable.getJobs().stream().map(job -> job.id).collect(toList()));
+
+        jobTable.getJobs().forEach(jobTable::remove);
+        assertEquals(emptyList(), jobTable.getJobs());
+        assertEquals(1, jobTable.start("fourth", id -> createExecution()).id);
+    }
+
+    @Test
+    public void testTheStarterIsGivenTheIdOfTheJob() {
+        final JobTable jobTable = new JobTable();
+        jobTable.start("first", id -> createExecution());
+        final Job second = jobTable.start("second", id -> {
+            assertEquals(2, id);
+            return createExecution();
+        });
+        assertEquals(2, second.id);
+    }
+
+    @Test
+    public void testGetJob() {
+        final JobTable jobTable = new JobTable();
+        final Job job = jobTable.start("first", id -> createExecution());
+
+        assertSame(job, jobTable.getJob(1));
+        assertSame(job, jobTable.getJob("1"));
+        assertSame(job, jobTable.getJob("%1"));
+        assertSame(job, jobTable.getCurrentJob());
+        assertNull(jobTable.getJob(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGetUnknownJob() {
+        new JobTable().getJob("%foo");
+    }
+
+    @Test
+    public void testStatus() {
+        final JobTable jobTable = new JobTable();
+        final CompletableFuture<PipelineResult> result = new CompletableFuture<>();
+        final Job job = jobTable.start("first", id -> new PipelineExecution(result));
+        assertEquals("Running", job.getStatus());
+
+        result.complete(new PipelineResult(asList(new StageResult("grep", 1, 0, 0, 0, 0)), 0));
+        assertEquals("Exit 1", job.getStatus());
+    }
+
+    private PipelineExecution createExecution() {
+        return new PipelineExecution(new CompletableFuture<>());
+    }
+}
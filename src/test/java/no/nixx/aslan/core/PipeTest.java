@@ -0,0 +1,251 @@
+package no.nixx.aslan.core;
+
+import no.nixx.aslan.api.Executable;
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.api.Program;
+import no.nixx.aslan.pipeline.PipelineParser;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PipeTest {
+
+    static ExecutorService threadPool;
+
+    @BeforeClass
+    public static void startupThreadPool() throws Exception {
+        threadPool = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownThreadPool() throws Exception {
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        final Pipe pipe = new Pipe();
+        pipe.getSink().write("Hello".getBytes());
+        pipe.getSink().close();
+
+        assertEquals("Hello", readFully(pipe.getSource()).toString());
+    }
+
+    @Test
+    public void testSingleBytes() throws IOException {
+        final Pipe pipe = new Pipe(4);
+        pipe.getSink().write('a');
+        pipe.getSink().write('b');
+        pipe.getSink().close();
+
+        assertEquals('a', pipe.getSource().read());
+        assertEquals('b', pipe.getSource().read());
+        assertEquals(-1, pipe.getSource().read());
+    }
+
+    @Test
+    public void testWrapAround() throws Exception {
+        final Pipe pipe = new Pipe(16);
+        final byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31);
+        }
+
+        final Future<?> writer = threadPool.submit(() -> {
+            try (OutputStream sink = pipe.getSink()) {
+                for (int off = 0; off < data.length; off += 7) {
+                    sink.write(data, off, Math.min(7, data.length - off));
+                }
+            }
+            return null;
+        });
+
+        assertArrayEquals(data, readFully(pipe.getSource()).toByteArray());
+        writer.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testChannelsWithDirectBuffers() throws Exception {
+        final Pipe pipe = new Pipe(16);
+        final byte[] data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 17);
+        }
+
+        final Future<?> writer = threadPool.submit(() -> {
+            try (WritableByteChannel sink = (WritableByteChannel) pipe.getSink()) {
+                final ByteBuffer src = ByteBuffer.allocateDirect(data.length);
+                src.put(data).flip();
+                assertEquals(data.length, sink.write(src));
+            }
+            return null;
+        });
+
+        final ReadableByteChannel source = (ReadableByteChannel) pipe.getSource();
+        final ByteBuffer dst = ByteBuffer.allocateDirect(data.length);
+        final ByteBuffer chunk = ByteBuffer.allocateDirect(11);
+        while (source.read(chunk) != -1) {
+            chunk.flip();
+            dst.put(chunk);
+            chunk.clear();
+        }
+        writer.get(5, TimeUnit.SECONDS);
+
+        final byte[] received = new byte[data.length];
+        dst.flip();
+        dst.get(received);
+        assertArrayEquals(data, received);
+    }
+
+    @Test(expected = BrokenPipeException.class)
+    public void testWriteAfterSourceClosed() throws IOException {
+        final Pipe pipe = new Pipe();
+        pipe.getSource().close();
+        pipe.getSink().write(1);
+    }
+
+    @Test(expected = IOException.class)
+    public void testWriteAfterSinkClosed() throws IOException {
+        final Pipe pipe = new Pipe();
+        pipe.getSink().close();
+        try {
+            pipe.getSink().write(1);
+        } catch (BrokenPipeException e) {
+            fail("Expected a closed pipe, not a broken one");
+        }
+    }
+
+    @Test
+    public void testBlockedWriterIsReleasedWhenSourceCloses() throws Exception {
+        final Pipe pipe = new Pipe(8);
+        final Future<?> writer = threadPool.submit(() -> {
+            pipe.getSink().write(new byte[1024]);
+            return null;
+        });
+
+        Thread.sleep(50);
+        pipe.getSource().close();
+
+        try {
+            writer.get(5, TimeUnit.SECONDS);
+            fail("Expected the writer to fail");
+        } catch (ExecutionException e) {
+            assertEquals(BrokenPipeException.class, e.getCause().getClass());
+        }
+    }
+
+    @Test
+    public void testBlockedReaderFailsWhenPipeIsClosed() throws Exception {
+        final Pipe pipe = new Pipe(8);
+        final Future<?> reader = threadPool.submit(() -> pipe.getSource().read());
+
+        Thread.sleep(50);
+        pipe.close();
+
+        try {
+            reader.get(5, TimeUnit.SECONDS);
+            fail("Expected the reader to fail");
+        } catch (ExecutionException e) {
+            assertEquals(IOException.class, e.getCause().getClass());
+        }
+    }
+
+    @Test
+    public void testTransferBetweenTwoPrograms() {
+        final long bytesToTransfer = 4L * Pipe.DEFAULT_CAPACITY + 123;
+        final ExecutableLocator executableLocator = new ExecutableLocator() {
+            @Override
+            public Executable lookupExecutable(String name) {
+                return name.equals("generate") ? new Generate() : name.equals("count") ? new Count() : null;
+            }
+
+            @Override
+            public List<String> findExecutableCandidates(String name) {
+                return emptyList();
+            }
+        };
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, executableLocator, new ExecutionContextFactoryImpl(new WorkingDirectoryImpl(".")), new ByteArrayInputStream(new byte[0]), out, System.err);
+        executor.execute(new PipelineParser().parseCommand("generate " + bytesToTransfer + " | count"));
+
+        assertEquals(String.valueOf(bytesToTransfer), out.toString());
+    }
+
+    private ByteArrayOutputStream readFully(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[5];
+        int bytesRead;
+        while ((bytesRead = in.read(buffer)) != -1) {
+            out.write(buffer, 0, bytesRead);
+        }
+        return out;
+    }
+
+    @ExecutableMetadata(name = "generate")
+    public static class Generate implements Program {
+        @Override
+        public void run(ExecutionContext executionContext, List<String> args) {
+            long remaining = Long.parseLong(args.get(0));
+            final byte[] chunk = new byte[64 * 1024];
+            try {
+                while (remaining > 0) {
+                    final int length = (int) Math.min(chunk.length, remaining);
+                    executionContext.output().write(chunk, 0, length);
+                    remaining -= length;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public int getExitStatus() {
+            return 0;
+        }
+    }
+
+    @ExecutableMetadata(name = "count")
+    public static class Count implements Program {
+        @Override
+        public void run(ExecutionContext executionContext, List<String> args) {
+            final byte[] buffer = new byte[64 * 1024];
+            long count = 0;
+            try {
+                int bytesRead;
+                while ((bytesRead = executionContext.input().read(buffer)) != -1) {
+                    count += bytesRead;
+                }
+                executionContext.output().write(String.valueOf(count).getBytes());
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public int getExitStatus() {
+            return 0;
+        }
+    }
+}
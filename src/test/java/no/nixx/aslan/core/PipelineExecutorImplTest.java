@@ -1,5 +1,8 @@
 package no.nixx.aslan.core;
 
+import no.nixx.aslan.api.Executable;
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.core.executables.Echo;
 import no.nixx.aslan.pipeline.PipelineParser;
 import no.nixx.aslan.pipeline.model.Pipeline;
 import org.junit.AfterClass;
@@ -9,17 +12,35 @@ import org.junit.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 
 public class PipelineExecutorImplTest {
 
     final static PipelineParser parser = new PipelineParser();
     final static ExecutableLocatorImpl executableLocator = new ExecutableLocatorImpl();
+    final static ExecutableLocatorImpl slowEchoLocator = new ExecutableLocatorImpl() {
+        @Override
+        public Executable lookupExecutable(String name) {
+            return name.equals("slowecho") ? new SlowEcho() : super.lookupExecutable(name);
+        }
+    };
     final static ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl("."));
 
     static ExecutorService threadPool;
@@ -140,7 +161,299 @@ public class PipelineExecutorImplTest {
         assertEquals(format("foo-bar-zomg some spaces %n"), out.toString());
     }
 
+    @Test
+    public void testMoreStagesThanPoolThreadsWithCachedThreadPool() {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            assertEquals(format("foo%n"), executeManyStages(new ThreadPoolStageScheduler(cachedThreadPool), 100));
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMoreStagesThanPoolThreadsWithVirtualThreads() {
+        assumeTrue(VirtualThreadStageScheduler.isSupported());
+        assertEquals(format("foo%n"), executeManyStages(new VirtualThreadStageScheduler(), 500));
+    }
+
+    @Test
+    public void testCommandSubstitutionsAreExpandedInParallel() {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final PipelineExecutor executor = new PipelineExecutorImpl(cachedThreadPool, slowEchoLocator, executionContextFactory, getEmptyInputStream(), out, System.err);
+
+            final long start = System.nanoTime();
+            executor.execute(parser.parseCommand("echo $(slowecho a) x$(slowecho b | cat) \"$(slowecho c) $(echo $(slowecho d))\""));
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(format("a xb c d%n"), out.toString());
+            assertTrue("Expected the substitutions to overlap, took " + elapsedMillis + " ms", elapsedMillis < 3 * SlowEcho.DELAY_MILLIS);
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFailingCommandSubstitutionExpandedInParallel() {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            final PipelineExecutor executor = new PipelineExecutorImpl(cachedThreadPool, slowEchoLocator, executionContextFactory, getEmptyInputStream(), new ByteArrayOutputStream(), System.err);
+            executor.execute(parser.parseCommand("echo $(slowecho a) $(nosuchcommand)"));
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecuteAsyncReturnsBeforeThePipelineHasFinished() {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final PipelineExecutor executor = new PipelineExecutorImpl(cachedThreadPool, slowEchoLocator, executionContextFactory, getEmptyInputStream(), out, System.err);
+
+            final long start = System.nanoTime();
+            final CompletableFuture<PipelineResult> future = executor.executeAsync(parser.parseCommand("slowecho $(slowecho foo) | grep foo"));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < SlowEcho.DELAY_MILLIS);
+            assertFalse(future.isDone());
+
+            final PipelineResult result = future.join();
+            assertEquals(format("foo%n"), out.toString());
+            assertEquals(asList(0, 0), result.getExitStatuses());
+            assertEquals(0, result.getExitStatus());
+            assertEquals(out.size(), result.getBytesWritten());
+            assertTrue(result.getElapsedMillis() >= 2 * SlowEcho.DELAY_MILLIS);
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testExitStatusesOfTheStages() {
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, executableLocator, executionContextFactory, getEmptyInputStream(), new ByteArrayOutputStream(), new ByteArrayOutputStream());
+
+        assertEquals(asList(0, 1), executor.execute(parser.parseCommand("echo foo | grep bar")).getExitStatuses());
+        assertEquals(asList(0, 1, 0), executor.execute(parser.parseCommand("echo foo | failwhenrun | grep foo")).getExitStatuses());
+        assertEquals(emptyList(), executor.execute(new Pipeline()).getExitStatuses());
+    }
+
+    @Test
+    public void testStageResults() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, executableLocator, executionContextFactory, new ByteArrayInputStream("ignored".getBytes()), out, System.err);
+        final PipelineResult result = executor.execute(parser.parseCommand("echo foo bar | grep foo | cat"));
+
+        final int lineLength = format("foo bar%n").length();
+        assertEquals(asList("echo", "grep", "cat"), result.stageResults.stream().map(stageResult -> stageResult.name).collect(toList()));
+        for (StageResult stageResult : result.stageResults) {
+            assertEquals(0, stageResult.exitStatus);
+            assertEquals(lineLength, stageResult.bytesWritten);
+            assertTrue(stageResult.wallNanos >= 0);
+            assertTrue(stageResult.wallNanos <= result.elapsedNanos);
+        }
+        assertEquals(0, result.stageResults.get(0).bytesRead);
+        assertEquals(lineLength, result.stageResults.get(1).bytesRead);
+        assertEquals(lineLength, result.stageResults.get(2).bytesRead);
+        assertEquals(lineLength, out.size());
+    }
+
+    @Test
+    public void testExitStatusVariables() {
+        final ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl("."));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, executableLocator, executionContextFactory, getEmptyInputStream(), out, new ByteArrayOutputStream());
+
+        executor.execute(parser.parseCommand("echo foo | grep bar"));
+        assertEquals("1", executionContextFactory.getVariable("EXITSTATUS"));
+        assertEquals("0 1", executionContextFactory.getVariable("PIPESTATUS"));
+
+        executor.execute(parser.parseCommand("echo $(echo foo | grep bar) ${PIPESTATUS}"));
+        assertEquals(format(" 0 1%n"), out.toString());
+        assertEquals("0", executionContextFactory.getVariable("EXITSTATUS"));
+        assertEquals("0", executionContextFactory.getVariable("PIPESTATUS"));
+
+        executor.execute(parser.parseCommand("echo foo | grep bar &"));
+        assertEquals("0", executionContextFactory.getVariable("EXITSTATUS"));
+        assertEquals("0", executionContextFactory.getVariable("PIPESTATUS"));
+    }
+
+    @Test
+    public void testTime() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, executableLocator, executionContextFactory, getEmptyInputStream(), out, err);
+        final PipelineResult result = executor.execute(parser.parseCommand("time echo foo | grep foo"));
+
+        assertEquals(format("foo%n"), out.toString());
+        assertEquals(asList(0, 0), result.getExitStatuses());
+
+        final String[] lines = err.toString().split(format("%n"));
+        assertEquals(4, lines.length);
+        assertTrue(lines[0], lines[0].matches("real \\d+\\.\\d{3}s"));
+        assertTrue(lines[1], lines[1].matches("stage +status +wall +cpu +read +written"));
+        assertTrue(lines[2], lines[2].matches("echo +0 +\\d+\\.\\d{3}s +(\\d+\\.\\d{3}s|-) +0 +4"));
+        assertTrue(lines[3], lines[3].matches("grep +0 +\\d+\\.\\d{3}s +(\\d+\\.\\d{3}s|-) +4 +4"));
+    }
+
+    @Test
+    public void testTimeMustComeFirst() {
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, executableLocator, executionContextFactory, getEmptyInputStream(), new ByteArrayOutputStream(), err);
+
+        assertEquals(1, executor.execute(parser.parseCommand("echo foo | time grep foo")).getExitStatus());
+        assertTrue(err.toString().startsWith("time: "));
+    }
+
+    @Test
+    public void testExecuteAsyncCompletesExceptionallyWhenACommandIsNotFound() {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            final PipelineExecutor executor = new PipelineExecutorImpl(cachedThreadPool, executableLocator, executionContextFactory, getEmptyInputStream(), new ByteArrayOutputStream(), System.err);
+            final CompletableFuture<PipelineResult> future = executor.executeAsync(parser.parseCommand("echo foo | nosuchcommand"));
+            try {
+                future.join();
+                fail("Expected the pipeline to fail");
+            } catch (CompletionException e) {
+                assertTrue(e.getCause() instanceof IllegalArgumentException);
+            }
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelSleepingStages() {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            final PipelineExecutor executor = new PipelineExecutorImpl(cachedThreadPool, slowEchoLocator, executionContextFactory, getEmptyInputStream(), new ByteArrayOutputStream(), System.err);
+            final PipelineExecution execution = executor.start(parser.parseCommand("slowecho foo | cat"));
+            execution.cancel();
+
+            final PipelineResult result = execution.getResult().join();
+            assertTrue(execution.isCancelled());
+            assertTrue(result.cancelled);
+            assertEquals(PipelineExecution.CANCELLED_EXIT_STATUS, result.getExitStatus());
+            assertTrue(result.getExitStatuses().stream().allMatch(exitStatus -> exitStatus == PipelineExecution.CANCELLED_EXIT_STATUS));
+            assertTrue(result.getElapsedMillis() < SlowEcho.DELAY_MILLIS);
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancelStreamingStages() throws Exception {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            final InputStream endlessInput = new InputStream() {
+                @Override
+                public int read() {
+                    return 'y';
+                }
+            };
+            final AtomicLong bytesWritten = new AtomicLong();
+            final OutputStream out = new OutputStream() {
+                @Override
+                public void write(int b) {
+                    bytesWritten.incrementAndGet();
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    bytesWritten.addAndGet(len);
+                }
+            };
+            final PipelineExecutor executor = new PipelineExecutorImpl(cachedThreadPool, executableLocator, executionContextFactory, endlessInput, out, System.err);
+            final PipelineExecution execution = executor.start(parser.parseCommand("cat | cat | cat"));
+            while (bytesWritten.get() == 0) {
+                Thread.sleep(10);
+            }
+            execution.cancel();
+
+            final PipelineResult result = execution.getResult().get(5, TimeUnit.SECONDS);
+            assertTrue(result.cancelled);
+            assertEquals(asList(130, 130, 130), result.getExitStatuses());
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testJobsAndWait() {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            final ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl("."));
+            final JobTable jobTable = executionContextFactory.getJobTable();
+            final ByteArrayOutputStream jobOut = new ByteArrayOutputStream();
+            final PipelineExecutor jobExecutor = new PipelineExecutorImpl(cachedThreadPool, slowEchoLocator, executionContextFactory, getEmptyInputStream(), jobOut, System.err);
+            jobTable.start("slowecho foo | grep foo &", id -> jobExecutor.start(parser.parseCommand("slowecho foo | grep foo &")));
+            jobTable.start("slowecho bar | grep foo &", id -> jobExecutor.start(parser.parseCommand("slowecho bar | grep foo &")));
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final PipelineExecutor executor = new PipelineExecutorImpl(cachedThreadPool, executableLocator, executionContextFactory, getEmptyInputStream(), out, System.err);
+            executor.execute(parser.parseCommand("jobs"));
+            assertEquals(format("[1] Running    slowecho foo | grep foo &%n[2] Running    slowecho bar | grep foo &%n"), out.toString());
+
+            assertEquals(1, executor.execute(parser.parseCommand("wait %1 %2")).getExitStatus());
+            assertEquals(format("foo%n"), jobOut.toString());
+            assertEquals(emptyList(), jobTable.getJobs());
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancellingFgCancelsTheJob() throws Exception {
+        final ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
+        try {
+            final ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl("."));
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final PipelineExecutor executor = new PipelineExecutorImpl(cachedThreadPool, slowEchoLocator, executionContextFactory, getEmptyInputStream(), out, System.err);
+            final Job job = executionContextFactory.getJobTable().start("slowecho foo &", id -> executor.start(parser.parseCommand("slowecho foo &")));
+
+            final PipelineExecution fg = executor.start(parser.parseCommand("fg"));
+            while (!out.toString().contains("slowecho foo &")) {
+                Thread.sleep(10);
+            }
+            fg.cancel();
+
+            assertEquals(PipelineExecution.CANCELLED_EXIT_STATUS, fg.getResult().join().getExitStatus());
+            assertEquals(PipelineExecution.CANCELLED_EXIT_STATUS, job.execution.getResult().join().getExitStatus());
+            assertTrue(job.execution.getResult().join().getElapsedMillis() < SlowEcho.DELAY_MILLIS);
+        } finally {
+            cachedThreadPool.shutdown();
+        }
+    }
+
+    private String executeManyStages(StageScheduler stageScheduler, int numberOfStages) {
+        final StringBuilder command = new StringBuilder("echo foo");
+        for (int i = 1; i < numberOfStages; i++) {
+            command.append(" | cat");
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final PipelineExecutor executor = new PipelineExecutorImpl(stageScheduler, executableLocator, executionContextFactory, getEmptyInputStream(), out, System.err);
+        executor.execute(parser.parseCommand(command.toString()));
+        return out.toString();
+    }
+
     private ByteArrayInputStream getEmptyInputStream() {
         return new ByteArrayInputStream(new byte[0]);
     }
+
+    @ExecutableMetadata(name = "slowecho")
+    public static class SlowEcho extends Echo {
+
+        static final long DELAY_MILLIS = 300;
+
+        @Override
+        public void run(ExecutionContext context, List<String> args) {
+            try {
+                Thread.sleep(DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            super.run(context, args);
+        }
+    }
 }
\ No newline at end of file
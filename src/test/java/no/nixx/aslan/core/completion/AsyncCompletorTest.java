@@ -0,0 +1,91 @@
+package no.nixx.aslan.core.completion;
+
+import no.nixx.aslan.api.ExecutionContext;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.util.TestExecutableLocator;
+import no.nixx.aslan.util.TestExecutionContext;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static no.nixx.aslan.core.completion.specs.OptionCompletionSpec.option;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncCompletorTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutionContext executionContext = new TestExecutionContext(new WorkingDirectoryImpl("."));
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testGetCompletions() throws Exception {
+        final AsyncCompletor completor = new AsyncCompletor(new Completor(), executor);
+        final TestExecutableLocator executableLocator = new TestExecutableLocator("git", new CompletionSpecRoot(option("add"), option("remove")));
+
+        final CompletionResult result = completor.getCompletions("git ", 4, executableLocator, executionContext).get(5, TimeUnit.SECONDS);
+        assertEquals(new CompletionResult("git ", 4, asList("add", "remove")), result);
+    }
+
+    @Test
+    public void testNewRequestCancelsPendingRequest() throws Exception {
+        final BlockingCompletionSpec blockingSpec = new BlockingCompletionSpec();
+        final AsyncCompletor completor = new AsyncCompletor(new Completor(), executor);
+        final TestExecutableLocator executableLocator = new TestExecutableLocator("git", new CompletionSpecRoot(blockingSpec, option("add")));
+
+        final CompletableFuture<CompletionResult> first = completor.getCompletions("git a", 5, executableLocator, executionContext);
+        assertTrue(blockingSpec.entered.await(5, TimeUnit.SECONDS));
+
+        final CompletableFuture<CompletionResult> second = completor.getCompletions("git ad", 6, executableLocator, executionContext);
+        blockingSpec.release.countDown();
+
+        try {
+            first.get(5, TimeUnit.SECONDS);
+            fail("Expected the first request to be cancelled");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof CancellationException);
+        }
+        assertEquals(new CompletionResult("git add ", 8, Collections.<String>emptyList()), second.get(5, TimeUnit.SECONDS));
+    }
+
+    private static class BlockingCompletionSpec extends CompletionSpec {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public boolean isPartialMatch(String argument) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isCompleteMatch(String argument) {
+            return false;
+        }
+
+        @Override
+        public List<String> getCompletions(String argument) {
+            return Collections.emptyList();
+        }
+    }
+}
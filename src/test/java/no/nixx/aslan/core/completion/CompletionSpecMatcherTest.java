@@ -0,0 +1,72 @@
+package no.nixx.aslan.core.completion;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static no.nixx.aslan.core.completion.specs.OptionCompletionSpec.option;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompletionSpecMatcherTest {
+
+    @Test
+    public void testDepth() {
+        final CompletionSpec leaf = option("c");
+        final CompletionSpec middle = option("b", leaf);
+        final CompletionSpecRoot root = new CompletionSpecRoot(option("a", middle));
+
+        assertEquals(0, root.getDepth());
+        assertEquals(2, middle.getDepth());
+        assertEquals(3, leaf.getDepth());
+    }
+
+    @Test
+    public void testHasCompleteAncestry() {
+        final CompletionSpec leaf = option("c");
+        final CompletionSpecRoot root = new CompletionSpecRoot(option("a", option("b", leaf)));
+
+        assertTrue(new CompletionSpecMatcher(root, asList("a", "b", "c")).hasCompleteAncestry(leaf));
+        assertTrue(new CompletionSpecMatcher(root, asList("a", "x", "b", "y", "c")).hasCompleteAncestry(leaf));
+        assertFalse(new CompletionSpecMatcher(root, asList("a", "c")).hasCompleteAncestry(leaf));
+        assertFalse(new CompletionSpecMatcher(root, emptyList()).hasCompleteAncestry(leaf));
+        assertTrue(new CompletionSpecMatcher(root, emptyList()).hasCompleteAncestry(root));
+    }
+
+    @Test
+    public void testEachSpecIsMatchedOnceForEachArgument() {
+        final CountingSpec counting = new CountingSpec();
+        final CompletionSpecRoot root = new CompletionSpecRoot(option("a", counting), option("b", option("c")));
+        final CompletionSpecMatcher matcher = new CompletionSpecMatcher(root, asList("a", "x", "x"));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(singletonList(counting), matcher.findMatchingNodes("x", true));
+            assertTrue(matcher.hasCompleteAncestry(counting));
+        }
+        assertEquals(1, counting.completeMatches);
+    }
+
+    private static class CountingSpec extends CompletionSpec {
+        int completeMatches;
+
+        @Override
+        public boolean isPartialMatch(String argument) {
+            return false;
+        }
+
+        @Override
+        public boolean isCompleteMatch(String argument) {
+            completeMatches++;
+            return argument.equals("x");
+        }
+
+        @Override
+        public List<String> getCompletions(String argument) {
+            return singletonList("x");
+        }
+    }
+}
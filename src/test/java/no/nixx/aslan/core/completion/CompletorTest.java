@@ -4,12 +4,14 @@ import no.nixx.aslan.api.Executable;
 import no.nixx.aslan.api.ExecutionContext;
 import no.nixx.aslan.completion.specs.TestFilesCompletionSpec;
 import no.nixx.aslan.core.ExecutableLocator;
+import no.nixx.aslan.core.ExecutableLocatorImpl;
 import no.nixx.aslan.core.WorkingDirectoryImpl;
 import no.nixx.aslan.util.TestExecutable;
 import no.nixx.aslan.util.TestExecutableLocator;
 import no.nixx.aslan.util.TestExecutionContext;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -86,6 +88,12 @@ public class CompletorTest {
         assertEquals(new CompletionResult("git add file --verbosity high ", 30, asList("--verbose", "fileA", "fileB", "fileC")), result);
     }
 
+    @Test
+    public void testCompletionOfUnknownCommand() {
+        final CompletionResult result = completor.getCompletions("zzz", 3, new ExecutableLocatorImpl(), executionContext);
+        assertEquals(new CompletionResult("zzz", 3, Collections.<String>emptyList()), result);
+    }
+
     @Test
     public void testInlineCompletion() {
         CompletionResult result;
@@ -246,6 +254,20 @@ public class CompletorTest {
         assertEquals(new CompletionResult("foo", 3, asList("foo", "foobar")), result);
     }
 
+    @Test
+    public void testCommonStartOfManyCompletions() {
+        final List<String> names = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            names.add("some file " + (10_000 + i));
+        }
+        final ExecutableLocator executableLocator = new TestExecutableLocator("git", new CompletionSpecRoot(new TestFilesCompletionSpec(names.toArray(new String[names.size()]))));
+
+        final CompletionResult result = completor.getCompletions("git s", 5, executableLocator, executionContext);
+        assertEquals("git \"some file ", result.text);
+        assertEquals(50_000, result.completionCandidates.size());
+        assertEquals("\"some file 10000\"", result.completionCandidates.get(0));
+    }
+
     private CompletionSpec files() {
         return new TestFilesCompletionSpec("fileA", "fileB", "fileC");
     }
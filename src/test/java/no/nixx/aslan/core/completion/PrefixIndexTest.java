@@ -0,0 +1,91 @@
+package no.nixx.aslan.core.completion;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static no.nixx.aslan.core.utils.StringUtils.getCommonStartOfStrings;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrefixIndexTest {
+
+    private final PrefixIndex index = new PrefixIndex(asList("grep", "cd", "cat", "can", "ls", "call", "c"));
+
+    @Test
+    public void testGetMatches() {
+        assertEquals(asList("c", "call", "can", "cat", "cd"), index.getMatches("c"));
+        assertEquals(asList("call", "can", "cat"), index.getMatches("ca"));
+        assertEquals(asList("grep"), index.getMatches("grep"));
+        assertEquals(Collections.emptyList(), index.getMatches("greps"));
+        assertEquals(Collections.emptyList(), index.getMatches("x"));
+        assertEquals(7, index.getMatches("").size());
+    }
+
+    @Test
+    public void testGetMatchesInOriginalOrder() {
+        assertEquals(asList("cd", "cat", "can", "call", "c"), index.getMatchesInOriginalOrder("c"));
+        assertEquals(asList("grep", "cd", "cat", "can", "ls", "call", "c"), index.getMatchesInOriginalOrder(""));
+    }
+
+    @Test
+    public void testContains() {
+        assertTrue(index.contains("cat"));
+        assertFalse(index.contains("ca"));
+        assertTrue(index.containsPrefix("ca"));
+        assertFalse(index.containsPrefix("cb"));
+        assertFalse(index.containsPrefix("lsx"));
+    }
+
+    @Test
+    public void testGetCommonPrefix() {
+        assertEquals("c", index.getCommonPrefix("c"));
+        assertEquals("ca", index.getCommonPrefix("ca"));
+        assertEquals("grep", index.getCommonPrefix("g"));
+        assertEquals("x", index.getCommonPrefix("x"));
+        assertEquals("", index.getCommonPrefix(""));
+    }
+
+    @Test
+    public void testSameResultAsLinearSearch() {
+        final Random random = new Random(42);
+        final List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            strings.add(randomString(random, 6));
+        }
+
+        final PrefixIndex randomIndex = new PrefixIndex(strings);
+        for (int i = 0; i < 500; i++) {
+            final String prefix = randomString(random, 3);
+            final List<String> expected = strings.stream().distinct().filter(s -> s.startsWith(prefix)).collect(toList());
+            assertEquals(expected, randomIndex.getMatchesInOriginalOrder(prefix));
+            assertEquals(expected.stream().sorted().collect(toList()), randomIndex.getMatches(prefix));
+            assertEquals(expected.isEmpty() ? prefix : getCommonStartOfStrings(expected), randomIndex.getCommonPrefix(prefix));
+        }
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullString() {
+        new PrefixIndex(asList("a", null));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullPrefix() {
+        index.getMatches(null);
+    }
+
+    private String randomString(Random random, int maximumLength) {
+        final StringBuilder sb = new StringBuilder();
+        final int length = random.nextInt(maximumLength + 1);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
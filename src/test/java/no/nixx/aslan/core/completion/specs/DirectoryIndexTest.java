@@ -0,0 +1,84 @@
+package no.nixx.aslan.core.completion.specs;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DirectoryIndexTest {
+
+    final static Path directory = Paths.get("target/directoryIndexTest").toAbsolutePath();
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        Files.createDirectories(directory.resolve("dir"));
+        Files.deleteIfExists(directory.resolve("file.txt"));
+        Files.createFile(directory.resolve("file.txt"));
+    }
+
+    @Test
+    public void testEntriesHaveNamesAndTypes() throws IOException {
+        final DirectoryIndex index = new DirectoryIndex(16);
+
+        final DirectoryIndex.Entry dir = index.getEntry(directory.resolve("dir"));
+        assertEquals("dir", dir.name);
+        assertTrue(dir.isDirectory);
+        assertFalse(dir.isRegularFile);
+
+        final DirectoryIndex.Entry file = index.getEntry(directory.resolve("file.txt"));
+        assertFalse(file.isDirectory);
+        assertTrue(file.isRegularFile);
+
+        assertNull(index.getEntry(directory.resolve("missing")));
+        assertNull(index.getEntry(directory.resolve("missing/file.txt")));
+    }
+
+    @Test
+    public void testListingIsCachedByAbsolutePath() throws IOException {
+        final DirectoryIndex index = new DirectoryIndex(16);
+        final List<DirectoryIndex.Entry> entries = index.getEntries(directory);
+
+        assertSame(entries, index.getEntries(directory.resolve("dir/..")));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testListingIsInvalidatedWhenDirectoryChanges() throws Exception {
+        final DirectoryIndex index = new DirectoryIndex(16);
+        final Path newFile = directory.resolve("dir/new.txt");
+        Files.deleteIfExists(newFile);
+        assertFalse(names(index.getEntries(directory.resolve("dir"))).contains("new.txt"));
+
+        Files.createFile(newFile);
+        final long deadline = System.currentTimeMillis() + 30_000;
+        while (!names(index.getEntries(directory.resolve("dir"))).contains("new.txt")) {
+            assertTrue("Listing was not invalidated", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedListingIsEvicted() throws IOException {
+        final DirectoryIndex index = new DirectoryIndex(1);
+        index.getEntries(directory);
+        index.getEntries(directory.resolve("dir"));
+
+        assertEquals(1, index.size());
+    }
+
+    private Set<String> names(List<DirectoryIndex.Entry> entries) {
+        return entries.stream().map(e -> e.name).collect(toSet());
+    }
+}
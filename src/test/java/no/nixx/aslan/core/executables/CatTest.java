@@ -0,0 +1,84 @@
+package no.nixx.aslan.core.executables;
+
+import no.nixx.aslan.core.ExecutableLocatorImpl;
+import no.nixx.aslan.core.ExecutionContextFactoryImpl;
+import no.nixx.aslan.core.PipelineExecutor;
+import no.nixx.aslan.core.PipelineExecutorImpl;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.pipeline.PipelineParser;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class CatTest {
+
+    final static Path directory = Paths.get("target/catTest").toAbsolutePath();
+    final static byte[] smallFileContent = "Hello\nWorld\n".getBytes();
+    final static byte[] largeFileContent = new byte[(int) (Cat.MAPPING_CHUNK_SIZE + Cat.MAPPING_THRESHOLD + 17)];
+
+    static ExecutorService threadPool;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        threadPool = Executors.newFixedThreadPool(4);
+
+        new Random(42).nextBytes(largeFileContent);
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("small.txt"), smallFileContent);
+        Files.write(directory.resolve("large.bin"), largeFileContent);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSmallFile() {
+        assertEquals("Hello\nWorld\n", execute("cat small.txt", new byte[0]).toString());
+    }
+
+    @Test
+    public void testSeveralFiles() {
+        assertEquals("Hello\nWorld\nHello\nWorld\n", execute("cat small.txt small.txt", new byte[0]).toString());
+    }
+
+    @Test
+    public void testStandardInput() {
+        assertEquals("fooHello\nWorld\n", execute("cat - small.txt", "foo".getBytes()).toString());
+    }
+
+    @Test
+    public void testLargeFileThroughPipe() {
+        assertArrayEquals(largeFileContent, execute("cat large.bin | cat", new byte[0]).toByteArray());
+    }
+
+    @Test
+    public void testLargeFileToStream() {
+        assertArrayEquals(largeFileContent, execute("cat large.bin", new byte[0]).toByteArray());
+    }
+
+    private ByteArrayOutputStream execute(String command, byte[] input) {
+        final InputStream in = new ByteArrayInputStream(input);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl(directory));
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, new ExecutableLocatorImpl(), executionContextFactory, in, out, System.err);
+        executor.execute(new PipelineParser().parseCommand(command));
+        return out;
+    }
+}
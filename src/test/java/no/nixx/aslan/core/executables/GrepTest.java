@@ -0,0 +1,204 @@
+package no.nixx.aslan.core.executables;
+
+import no.nixx.aslan.core.ExecutableLocatorImpl;
+import no.nixx.aslan.core.ExecutionContextFactoryImpl;
+import no.nixx.aslan.core.Pipe;
+import no.nixx.aslan.core.PipelineExecutor;
+import no.nixx.aslan.core.PipelineExecutorImpl;
+import no.nixx.aslan.core.PipelineResult;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.core.executables.grep.FileScanner;
+import no.nixx.aslan.pipeline.PipelineParser;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class GrepTest {
+
+    final static Path directory = Paths.get("target/grepTest").toAbsolutePath();
+    final static String fruits = "apple\nBanana\ncherry\r\nbanana split\ndate";
+
+    static ExecutorService threadPool;
+    static String largeFileExpectedOutput;
+    static String largeFileExpectedLines;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        threadPool = Executors.newFixedThreadPool(4);
+
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("fruits.txt"), fruits.getBytes());
+        Files.write(directory.resolve("more.txt"), "kiwi\nbanana\n".getBytes());
+
+        // Spans several chunks, with a line longer than a whole chunk in the middle
+        final StringBuilder content = new StringBuilder();
+        final StringBuilder expected = new StringBuilder();
+        final StringBuilder expectedLines = new StringBuilder();
+        final char[] longLine = new char[FileScanner.CHUNK_SIZE + 1000];
+        Arrays.fill(longLine, 'x');
+        int lineNumber = 0;
+        while (content.length() < 3 * FileScanner.CHUNK_SIZE) {
+            lineNumber++;
+            final String line;
+            if (lineNumber == 20_000) {
+                line = new String(longLine) + "needle";
+            } else {
+                line = "line " + lineNumber + ((lineNumber % 997 == 0) ? " needle" : "");
+            }
+            content.append(line).append('\n');
+            if (line.contains("needle")) {
+                expected.append(lineNumber).append(':').append(line).append(format("%n"));
+                expectedLines.append(line).append(format("%n"));
+            }
+        }
+        Files.write(directory.resolve("large.txt"), content.toString().getBytes());
+        largeFileExpectedOutput = expected.toString();
+        largeFileExpectedLines = expectedLines.toString();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testLiteralFromStandardInput() {
+        assertEquals(format("Banana%nbanana split%n"), execute("grep ana", fruits));
+    }
+
+    @Test
+    public void testRegex() {
+        assertEquals(format("cherry%ndate%n"), execute("grep \"^[cd]\"", fruits));
+    }
+
+    @Test
+    public void testIgnoreCase() {
+        assertEquals(format("Banana%nbanana split%n"), execute("grep -i BANANA", fruits));
+        assertEquals(format("Banana%nbanana split%n"), execute("grep -i \"^B.*a\"", fruits));
+    }
+
+    @Test
+    public void testInvertMatch() {
+        assertEquals(format("apple%ncherry%ndate%n"), execute("grep -v ana", fruits));
+    }
+
+    @Test
+    public void testCountAndLineNumbers() {
+        assertEquals(format("2%n"), execute("grep -c ana", fruits));
+        assertEquals(format("2:Banana%n4:banana split%n"), execute("grep -n ana", fruits));
+        assertEquals(format("1:apple%n3:cherry%n5:date%n"), execute("grep -vn ana", fruits));
+    }
+
+    @Test
+    public void testFixedStrings() {
+        assertEquals(format("a.b%n"), execute("grep -F a.b", "a.b\naxb\n"));
+        assertEquals(format("a.b%naxb%n"), execute("grep a.b", "a.b\naxb\n"));
+    }
+
+    @Test
+    public void testFile() {
+        assertEquals(format("cherry%n"), execute("grep err fruits.txt", ""));
+        assertEquals(format("apple%ncherry%ndate%n"), execute("grep -v \"an[a ]\" fruits.txt", ""));
+    }
+
+    @Test
+    public void testSeveralFilesArePrefixedByName() {
+        assertEquals(format("fruits.txt:banana split%nmore.txt:banana%n"), execute("grep banana fruits.txt more.txt", ""));
+        assertEquals(format("fruits.txt:2%nmore.txt:1%n"), execute("grep -ci banana fruits.txt more.txt", ""));
+    }
+
+    @Test
+    public void testMissingFileIsSkipped() {
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(format("more.txt:kiwi%n"), execute("grep kiwi missing.txt more.txt", "", err));
+        assertEquals(format("grep: missing.txt: No such file%n"), err.toString());
+    }
+
+    @Test
+    public void testLargeFileIsScannedInOrder() {
+        assertEquals(largeFileExpectedOutput, execute("grep -n needle large.txt", ""));
+        assertEquals(largeFileExpectedOutput, execute("grep -n \"n[e]edle\" large.txt", ""));
+        assertEquals(largeFileExpectedLines, execute("grep -i NeeDLE large.txt", ""));
+    }
+
+    @Test
+    public void testLargeInputThroughPipe() {
+        assertEquals(largeFileExpectedOutput, execute("cat large.txt | grep -n needle", ""));
+        assertEquals(largeFileExpectedOutput, execute("cat large.txt | grep -n \"n[e]edle\"", ""));
+        assertEquals(largeFileExpectedLines, execute("cat large.txt | grep needle", ""));
+    }
+
+    @Test
+    public void testNonAsciiLines() {
+        assumeTrue(Charset.defaultCharset().equals(UTF_8));
+        final String input = "bl\u00e5b\u00e6r\nbringeb\u00e6r\nkiwi\n";
+        assertEquals(format("bl\u00e5b\u00e6r%nbringeb\u00e6r%n"), new String(executeBytes("grep \"b\u00e6r$\"", input), UTF_8));
+        assertEquals(format("bl\u00e5b\u00e6r%n"), new String(executeBytes("grep \"^.l.b\"", input), UTF_8));
+    }
+
+    @Test
+    public void testInvalidOption() {
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals("", execute("grep -q foo", "", err));
+        assertEquals(format("grep: Invalid option: -q%n"), err.toString());
+    }
+
+    @Test
+    public void testMatchesArePassedOnBeforeTheInputEnds() throws Exception {
+        final Pipe input = new Pipe();
+        final Pipe output = new Pipe();
+        final ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl(directory));
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, new ExecutableLocatorImpl(), executionContextFactory, input.getSource(), output.getSink(), System.err);
+        final CompletableFuture<PipelineResult> result = executor.executeAsync(new PipelineParser().parseCommand("grep apple"));
+
+        input.getSink().write("kiwi\napple\n".getBytes());
+        final byte[] buffer = new byte[1024];
+        final Future<Integer> bytesRead = threadPool.submit(() -> output.getSource().read(buffer));
+        assertEquals(format("apple%n"), new String(buffer, 0, bytesRead.get(5, TimeUnit.SECONDS)));
+
+        input.getSink().close();
+        assertEquals(0, result.get(5, TimeUnit.SECONDS).getExitStatus());
+    }
+
+    private String execute(String command, String input) {
+        return execute(command, input, new ByteArrayOutputStream());
+    }
+
+    private byte[] executeBytes(String command, String input) {
+        final InputStream in = new ByteArrayInputStream(input.getBytes(UTF_8));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl(directory));
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, new ExecutableLocatorImpl(), executionContextFactory, in, out, System.err);
+        executor.execute(new PipelineParser().parseCommand(command));
+        return out.toByteArray();
+    }
+
+    private String execute(String command, String input, ByteArrayOutputStream err) {
+        final InputStream in = new ByteArrayInputStream(input.getBytes());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl(directory));
+        final PipelineExecutor executor = new PipelineExecutorImpl(threadPool, new ExecutableLocatorImpl(), executionContextFactory, in, out, err);
+        executor.execute(new PipelineParser().parseCommand(command));
+        return out.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package no.nixx.aslan.core.executables;
+
+import no.nixx.aslan.core.ExecutableLocatorImpl;
+import no.nixx.aslan.core.ExecutionContextFactoryImpl;
+import no.nixx.aslan.core.PipelineExecutor;
+import no.nixx.aslan.core.PipelineExecutorImpl;
+import no.nixx.aslan.core.PipelineResult;
+import no.nixx.aslan.core.WorkingDirectoryImpl;
+import no.nixx.aslan.pipeline.PipelineParser;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HeadTest {
+
+    final static Path directory = Paths.get("target/headTest").toAbsolutePath();
+    final static int largeFileLines = 2_000_000;
+
+    static ExecutorService threadPool;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        threadPool = Executors.newFixedThreadPool(4);
+
+        Files.createDirectories(directory);
+        Files.write(directory.resolve("small.txt"), "1\n2\n3\n".getBytes());
+        final StringBuilder largeFileContent = new StringBuilder();
+        for (int i = 0; i < largeFileLines; i++) {
+            largeFileContent.append("line ").append(i).append('\n');
+        }
+        Files.write(directory.resolve("large.txt"), largeFileContent.toString().getBytes());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        threadPool.shutdown();
+        threadPool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testDefaultNumberOfLines() {
+        assertEquals("line 0\nline 1\nline 2\nline 3\nline 4\nline 5\nline 6\nline 7\nline 8\nline 9\n", execute("head large.txt", new byte[0], new ByteArrayOutputStream()).toString());
+    }
+
+    @Test
+    public void testNumberOfLines() {
+        assertEquals("a\nb\n", execute("head -n 2", "a\nb\nc\n".getBytes(), new ByteArrayOutputStream()).toString());
+        assertEquals("a\n", execute("head -n1", "a\nb\nc\n".getBytes(), new ByteArrayOutputStream()).toString());
+        assertEquals("a\nb\nc", execute("head -5", "a\nb\nc".getBytes(), new ByteArrayOutputStream()).toString());
+        assertEquals("", execute("head -n 0", "a\nb\nc\n".getBytes(), new ByteArrayOutputStream()).toString());
+    }
+
+    @Test
+    public void testSeveralFiles() {
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertEquals(String.format("==> small.txt <==%n1\n%n==> nosuchfile <==%n%n==> large.txt <==%nline 0\n"),
+                execute("head -n 1 small.txt nosuchfile large.txt", new byte[0], err).toString());
+        assertEquals(String.format("head: nosuchfile: No such file%n"), err.toString());
+    }
+
+    @Test
+    public void testUpstreamStageIsStoppedByBrokenPipe() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final ByteArrayOutputStream err = new ByteArrayOutputStream();
+        final PipelineResult result = executor(new byte[0], out, err).execute(new PipelineParser().parseCommand("cat large.txt | grep line | head -n 2"));
+
+        assertEquals("line 0\nline 1\n", out.toString());
+        assertEquals("", err.toString());
+        assertEquals(asList(PipelineExecutorImpl.BROKEN_PIPE_EXIT_STATUS, PipelineExecutorImpl.BROKEN_PIPE_EXIT_STATUS, 0), result.getExitStatuses());
+
+        final long largeFileSize = directory.resolve("large.txt").toFile().length();
+        assertTrue(result.stageResults.get(0).bytesWritten < largeFileSize / 4);
+    }
+
+    private ByteArrayOutputStream execute(String command, byte[] input, OutputStream err) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        executor(input, out, err).execute(new PipelineParser().parseCommand(command));
+        return out;
+    }
+
+    private PipelineExecutor executor(byte[] input, ByteArrayOutputStream out, OutputStream err) {
+        final ExecutionContextFactoryImpl executionContextFactory = new ExecutionContextFactoryImpl(new WorkingDirectoryImpl(directory));
+        return new PipelineExecutorImpl(threadPool, new ExecutableLocatorImpl(), executionContextFactory, new ByteArrayInputStream(input), out, err);
+    }
+}
@@ -0,0 +1,54 @@
+package no.nixx.aslan.pipeline;
+
+import no.nixx.aslan.pipeline.model.Pipeline;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class CachingPipelineParserTest {
+
+    @Test
+    public void testRepeatedCommandIsParsedOnce() {
+        final CachingPipelineParser parser = new CachingPipelineParser();
+        final Pipeline pipeline = parser.parseCommand("echo foo | grep o");
+
+        assertSame(pipeline, parser.parseCommand("echo foo | grep o"));
+        assertEquals(1, parser.getHitCount());
+        assertEquals(1, parser.getMissCount());
+        assertEquals(1, parser.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedCommandIsEvicted() {
+        final CachingPipelineParser parser = new CachingPipelineParser(2);
+        final Pipeline foo = parser.parseCommand("echo foo");
+        final Pipeline bar = parser.parseCommand("echo bar");
+        parser.parseCommand("echo foo");
+        parser.parseCommand("echo baz");
+
+        assertEquals(2, parser.size());
+        assertSame(foo, parser.parseCommand("echo foo"));
+        assertNotSame(bar, parser.parseCommand("echo bar"));
+        assertEquals(2, parser.getHitCount());
+        assertEquals(4, parser.getMissCount());
+    }
+
+    @Test
+    public void testParseErrorsAreNotCached() {
+        final CachingPipelineParser parser = new CachingPipelineParser();
+        for (int i = 0; i < 2; i++) {
+            try {
+                parser.parseCommand("echo $(");
+                fail("Expected a parse error");
+            } catch (ParseException e) {
+                // Expected
+            }
+        }
+
+        assertEquals(0, parser.size());
+        assertEquals(2, parser.getMissCount());
+    }
+}
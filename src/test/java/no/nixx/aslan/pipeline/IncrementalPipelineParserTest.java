@@ -0,0 +1,100 @@
+package no.nixx.aslan.pipeline;
+
+import no.nixx.aslan.pipeline.model.Command;
+import no.nixx.aslan.pipeline.model.CommandSubstitution;
+import no.nixx.aslan.pipeline.model.Pipeline;
+import no.nixx.aslan.pipeline.model.QuotedString;
+import no.nixx.aslan.pipeline.model.VariableSubstitution;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static no.nixx.aslan.pipeline.RecursiveDescentPipelineParserTest.render;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IncrementalPipelineParserTest {
+
+    private static final String[] fragments = {
+            "echo", "a", "FOO", " ", "\t", "|", "'", "'quoted'", "\"", "\"x $(y) ${Z}\"", "$(", ")", "$", "${", "}", "&", "\n"
+    };
+
+    @Test
+    public void testUnchangedCommandsAreKept() {
+        final IncrementalPipelineParser parser = new IncrementalPipelineParser();
+        final List<Command> before = parser.parseCommand("ls -l | grep foo | cat").getCommands();
+        final List<Command> after = parser.parseCommand("ls -l | grep foo | cat -").getCommands();
+
+        assertSame(before.get(0), after.get(0));
+        assertSame(before.get(1), after.get(1));
+        assertNotSame(before.get(2), after.get(2));
+        assertEquals("-", after.get(2).getArguments().get(1).getRenderedText());
+    }
+
+    @Test
+    public void testSameCommandGivesSamePipeline() {
+        final IncrementalPipelineParser parser = new IncrementalPipelineParser();
+        final Pipeline pipeline = parser.parseCommand("echo foo");
+        assertSame(pipeline, parser.parseCommand("echo foo"));
+    }
+
+    @Test
+    public void testBackgroundIsParsedAgainAfterAnEdit() {
+        final IncrementalPipelineParser parser = new IncrementalPipelineParser();
+        assertFalse(parser.parseCommand("ls | grep foo").isBackground());
+        assertTrue(parser.parseCommand("ls | grep foo &").isBackground());
+        assertFalse(parser.parseCommand("ls | grep foo").isBackground());
+    }
+
+    @Test
+    public void testPartialCommand() {
+        final IncrementalPipelineParser parser = new IncrementalPipelineParser();
+        final Command command = parser.parsePartialCommand("echo \"$(ls ${FO").getCommands().get(0);
+        assertEquals("echo \"$(ls ${FO})\"".length(), command.getStopIndex());
+
+        final QuotedString quotedString = (QuotedString) command.getArguments().get(1);
+        final CommandSubstitution cs = (CommandSubstitution) quotedString.getComponents().get(0).argument;
+        final VariableSubstitution vs = (VariableSubstitution) cs.getPipeline().getCommands().get(0).getArguments().get(1);
+        assertEquals("FO", vs.variableName);
+    }
+
+    @Test
+    public void testSameResultAsParsingFromScratch() {
+        final IncrementalPipelineParser parser = new IncrementalPipelineParser();
+        final Random random = new Random(42);
+
+        String cmd = "";
+        int parsed = 0;
+        for (int i = 0; i < 20_000; i++) {
+            cmd = randomEdit(random, cmd);
+            final boolean partial = random.nextBoolean();
+            final String expected = parse(new IncrementalPipelineParser(), cmd, partial);
+            if (expected.startsWith("Pipeline")) {
+                parsed++;
+            }
+            assertEquals(cmd, expected, parse(parser, cmd, partial));
+        }
+
+        assertTrue(parsed > 1000);
+    }
+
+    private String parse(IncrementalPipelineParser parser, String cmd, boolean partial) {
+        try {
+            return render(partial ? parser.parsePartialCommand(cmd) : parser.parseCommand(cmd));
+        } catch (ParseException e) {
+            return e.getMessage();
+        }
+    }
+
+    private String randomEdit(Random random, String cmd) {
+        final int from = random.nextInt(cmd.length() + 1);
+        final int to = Math.min(cmd.length(), from + random.nextInt(3) * random.nextInt(4));
+        final String replacement = random.nextInt(4) == 0 ? "" : fragments[random.nextInt(fragments.length)];
+        final String edited = cmd.substring(0, from) + replacement + cmd.substring(to);
+        return (edited.length() > 80) ? edited.substring(edited.length() - 40) : edited;
+    }
+}
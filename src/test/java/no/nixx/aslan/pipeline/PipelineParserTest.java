@@ -19,9 +19,13 @@ import static org.junit.Assert.assertTrue;
 
 public class PipelineParserTest {
 
+    protected PipelineParser createParser() {
+        return new PipelineParser();
+    }
+
     @Test
     public void testParseSingleCommand() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("ls foo bar 'arg with spaces'");
         assertEquals(1, pipeline.getCommands().size());
 
@@ -32,7 +36,7 @@ public class PipelineParserTest {
 
     @Test
     public void testParsePipeline() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("ls | grep foo");
 
         assertEquals(2, pipeline.getCommands().size());
@@ -48,7 +52,7 @@ public class PipelineParserTest {
 
     @Test
     public void testParseVariableSubstitution() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("echo ${HOME}");
 
         assertEquals(1, pipeline.getCommands().size());
@@ -67,7 +71,7 @@ public class PipelineParserTest {
 
     @Test
     public void testParseCommandSubstitution() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("echo $(echo foo)");
 
         assertEquals(1, pipeline.getCommands().size());
@@ -86,7 +90,7 @@ public class PipelineParserTest {
 
     @Test
     public void testParseQuotedStringWithVariableSubstitution() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("echo \"hello there ${FOO}\"");
 
         assertEquals(1, pipeline.getCommands().size());
@@ -111,7 +115,7 @@ public class PipelineParserTest {
 
     @Test
     public void testParseQuotedStringWithCommandSubstitution() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("echo \"hello there $(echo foo)\"");
 
         assertEquals(1, pipeline.getCommands().size());
@@ -145,7 +149,7 @@ public class PipelineParserTest {
 
     @Test
     public void testParseCompositeArgument() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("echo complex'single quoted'\"double quoted\"$(cs with'nested'\"complex\")${VS}");
         assertEquals(1, pipeline.getCommands().size());
 
@@ -172,7 +176,7 @@ public class PipelineParserTest {
 
     @Test
     public void testParseAndAddArgumentPositions() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("echo      first    complex'  Argument  ' $(cs and \"inner $(cs)\")");
         assertEquals(1, pipeline.getCommands().size());
 
@@ -237,7 +241,7 @@ public class PipelineParserTest {
 
     @Test
     public void testParseAndAddCommandProperties() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         final Pipeline pipeline = parser.parseCommand("foo|bar");
         assertEquals(2, pipeline.getCommands().size());
 
@@ -261,9 +265,31 @@ public class PipelineParserTest {
         assertEquals(11, cmdWithSpaces2.getStopIndex());
     }
 
+    @Test
+    public void testParseBackgroundPipeline() {
+        final PipelineParser parser = createParser();
+        assertFalse(parser.parseCommand("ls | grep foo").isBackground());
+
+        final Pipeline pipeline = parser.parseCommand("ls | grep foo & ");
+        assertTrue(pipeline.isBackground());
+        assertEquals(2, pipeline.getCommands().size());
+        assertEquals(asList("foo"), pipeline.getCommands().get(1).getRenderedArguments());
+
+        final Pipeline pipelineWithAmpersandInCommandSubstitution = parser.parseCommand("echo $(echo a&b)");
+        assertFalse(pipelineWithAmpersandInCommandSubstitution.isBackground());
+        final CommandSubstitution cs = (CommandSubstitution) pipelineWithAmpersandInCommandSubstitution.getCommands().get(0).getArguments().get(1);
+        assertEquals(asList("a&b"), cs.getPipeline().getCommands().get(0).getRenderedArguments());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testBackgroundMustEndTheCommand() {
+        final PipelineParser parser = createParser();
+        parser.parseCommand("ls & grep foo");
+    }
+
     @Test(expected = ParseException.class)
     public void testErrorHandling() {
-        final PipelineParser parser = new PipelineParser();
+        final PipelineParser parser = createParser();
         parser.parseCommand("echo $(echo");
     }
 }
\ No newline at end of file
@@ -0,0 +1,175 @@
+package no.nixx.aslan.pipeline;
+
+import no.nixx.aslan.antlr.AslanPipelineLexer;
+import no.nixx.aslan.pipeline.model.Argument;
+import no.nixx.aslan.pipeline.model.Command;
+import no.nixx.aslan.pipeline.model.CommandSubstitution;
+import no.nixx.aslan.pipeline.model.CompositeArgument;
+import no.nixx.aslan.pipeline.model.Literal;
+import no.nixx.aslan.pipeline.model.Pipeline;
+import no.nixx.aslan.pipeline.model.QuotedString;
+import no.nixx.aslan.pipeline.model.VariableSubstitution;
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RecursiveDescentPipelineParserTest extends PipelineParserTest {
+
+    private static final String[] fragments = {
+            "echo", "a", "FOO", "-l", "x.txt", " ", "  ", "\t", "|", "'", "'single quoted'", "\"", "\"double quoted\"",
+            "$(", ")", "$", "${", "}", "${HOME}", "$(ls)", "\"$(echo a) ${B}\"", "&", " & ", "\n"
+    };
+
+    @Override
+    protected PipelineParser createParser() {
+        return new RecursiveDescentPipelineParser();
+    }
+
+    @Test
+    public void testNestedQuotedStrings() {
+        final Pipeline pipeline = createParser().parseCommand("echo \"a $(echo \"b\") c\"");
+        final QuotedString quotedString = (QuotedString) pipeline.getCommands().get(0).getArguments().get(1);
+        assertEquals("a  c", quotedString.getText());
+
+        final CommandSubstitution cs = (CommandSubstitution) quotedString.getComponents().get(0).argument;
+        assertEquals("b", cs.getPipeline().getCommands().get(0).getArguments().get(1).getRenderedText());
+    }
+
+    @Test
+    public void testSyntaxErrorPositionIsWithinLine() {
+        try {
+            createParser().parseCommand("a\nb $");
+            fail("Expected a parse error");
+        } catch (ParseException e) {
+            assertEquals("Syntax error at position 2: a\nb $", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testSameResultAsAntlrParser() {
+        final PipelineParser antlrParser = new PipelineParser();
+        final PipelineParser parser = createParser();
+        final Random random = new Random(42);
+
+        int compared = 0;
+        for (int i = 0; i < 20_000; i++) {
+            final String cmd = randomCommand(random);
+            // The ANTLR lexer skips characters it does not recognize, the recursive descent parser rejects them
+            if (!isTokenizedByAntlr(cmd)) {
+                continue;
+            }
+
+            final Object expected;
+            try {
+                expected = render(antlrParser.parseCommand(cmd));
+            } catch (ParseException e) {
+                assertEquals(cmd, e.getMessage(), parseError(parser, cmd));
+                compared++;
+                continue;
+            } catch (RuntimeException e) {
+                // The ANTLR parser fails on some input, e.g. nested quoted strings, with other exceptions than
+                // ParseException. There is no result to compare with, but the parser must not fail in other ways.
+                try {
+                    parser.parseCommand(cmd);
+                } catch (ParseException ignored) {
+                }
+                continue;
+            }
+
+            assertEquals(cmd, expected, render(parser.parseCommand(cmd)));
+            compared++;
+        }
+
+        assertTrue(compared > 10_000);
+    }
+
+    private String randomCommand(Random random) {
+        final StringBuilder sb = new StringBuilder();
+        final int length = 1 + random.nextInt(12);
+        for (int i = 0; i < length; i++) {
+            sb.append(fragments[random.nextInt(fragments.length)]);
+        }
+        return sb.toString();
+    }
+
+    private boolean isTokenizedByAntlr(String cmd) {
+        final boolean[] tokenized = {true};
+        final AslanPipelineLexer lexer = new AslanPipelineLexer(new ANTLRInputStream(cmd));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+                tokenized[0] = false;
+            }
+        });
+        while (lexer.nextToken().getType() != Token.EOF) {
+            if (!tokenized[0]) {
+                return false;
+            }
+        }
+        return tokenized[0];
+    }
+
+    private String parseError(PipelineParser parser, String cmd) {
+        try {
+            parser.parseCommand(cmd);
+            return null;
+        } catch (ParseException e) {
+            return e.getMessage();
+        }
+    }
+
+    // The model classes do not implement equals(), and Command.toString() includes the identity of the command
+    static String render(Pipeline pipeline) {
+        final StringBuilder sb = new StringBuilder("Pipeline[");
+        for (Command command : pipeline.getCommands()) {
+            sb.append("Command(").append(command.getStartIndex()).append(',').append(command.getStopIndex()).append(")[");
+            for (Argument argument : command.getArguments()) {
+                sb.append(render(argument));
+            }
+            sb.append(']');
+        }
+        if (pipeline.isBackground()) {
+            sb.append('&');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String render(Argument argument) {
+        final StringBuilder sb = new StringBuilder(argument.getClass().getSimpleName())
+                .append('(').append(argument.getStartIndex())
+                .append(',').append(argument.getStopIndex())
+                .append(",<").append(argument.getUnprocessedArgument()).append(">)");
+
+        if (argument.isLiteral()) {
+            sb.append("<").append(((Literal) argument).text).append('>');
+        } else if (argument.isVariableSubstitution()) {
+            sb.append(((VariableSubstitution) argument).variableName);
+        } else if (argument.isCommandSubstitution()) {
+            sb.append(render(((CommandSubstitution) argument).getPipeline()));
+        } else if (argument.isQuotedString()) {
+            final QuotedString quotedString = (QuotedString) argument;
+            sb.append("<").append(quotedString.getText()).append(">[");
+            for (QuotedString.Component component : quotedString.getComponents()) {
+                sb.append(component.position).append(':').append(render(component.argument));
+            }
+            sb.append(']');
+        } else if (argument.isCompositeArgument()) {
+            sb.append('[');
+            for (Argument part : (CompositeArgument) argument) {
+                sb.append(render(part));
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+}
@@ -188,5 +188,79 @@ public class ObservableCompositeListTest {
         assertTrue(setObserved.get());
         assertEquals(asList("ignore", "bar"), list);
     }
-}
 
+    @Test
+    public void testChangesAreReportedAtTheCurrentOffset() {
+        final ObservableList<String> first = FXCollections.observableArrayList();
+        final ObservableList<String> last = FXCollections.observableArrayList("z1");
+        final ObservableCompositeList<String> list = new ObservableCompositeList<>(first, last);
+        first.addAll("a1", "a2");
+
+        final AtomicBoolean addObserved = new AtomicBoolean(false);
+        list.addListener(new ListChangeListener<String>() {
+            @Override
+            public void onChanged(Change<? extends String> c) {
+                while (c.next()) {
+                    assertEquals(3, c.getFrom());
+                    assertEquals(singletonList("z2"), c.getAddedSubList());
+                    addObserved.set(true);
+                }
+                list.removeListener(this);
+            }
+        });
+        last.add("z2");
+        assertTrue(addObserved.get());
+        assertEquals(asList("a1", "a2", "z1", "z2"), list);
+    }
+
+    @Test
+    public void testPermutation() {
+        final ObservableList<String> first = FXCollections.observableArrayList("ignore");
+        final ObservableList<String> last = FXCollections.observableArrayList("c", "a", "b");
+        final ObservableCompositeList<String> list = new ObservableCompositeList<>(first, last);
+
+        final AtomicBoolean permutationObserved = new AtomicBoolean(false);
+        list.addListener(new ListChangeListener<String>() {
+            @Override
+            public void onChanged(Change<? extends String> c) {
+                while (c.next()) {
+                    assertTrue(c.wasPermutated());
+                    assertEquals(1, c.getFrom());
+                    assertEquals(4, c.getTo());
+                    assertEquals(3, c.getPermutation(1));
+                    assertEquals(1, c.getPermutation(2));
+                    permutationObserved.set(true);
+                }
+                list.removeListener(this);
+            }
+        });
+        FXCollections.sort(last);
+        assertTrue(permutationObserved.get());
+        assertEquals(asList("ignore", "a", "b", "c"), list);
+    }
+
+    @Test
+    public void testGetAndIndexOfWithEmptyLists() {
+        final ObservableList<String> first = FXCollections.observableArrayList("a1", "a2");
+        final ObservableList<String> middle = FXCollections.observableArrayList();
+        final ObservableList<String> last = FXCollections.observableArrayList("z1");
+        final ObservableCompositeList<String> list = new ObservableCompositeList<>(first, middle, last);
+
+        assertEquals(3, list.size());
+        assertEquals("a2", list.get(1));
+        assertEquals("z1", list.get(2));
+        assertEquals(2, list.indexOf("z1"));
+        assertEquals(-1, list.indexOf("m1"));
+
+        middle.add("m1");
+        first.clear();
+        assertEquals(asList("m1", "z1"), list);
+        assertEquals(1, list.indexOf("z1"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfBounds() {
+        final ObservableList<String> first = FXCollections.observableArrayList("a1");
+        new ObservableCompositeList<>(first, FXCollections.<String>observableArrayList()).get(1);
+    }
+}
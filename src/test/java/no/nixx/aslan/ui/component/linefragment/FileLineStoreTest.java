@@ -0,0 +1,154 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import javafx.scene.paint.Color;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileLineStoreTest {
+
+    private Path file;
+    private FileLineStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("aslan-scrollback-test", ".lines");
+        // Small segments and cache to have lines read from mapped segments, across segments and from the file
+        store = new FileLineStore(file, 64, 4);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testLinesAreReadBack() {
+        final EncodedLine empty = new EncodedLine(new char[0], new int[0]);
+        final EncodedLine latin1 = encodedLine("Hello w\u00f8rld", 6, 0, 11, 1);
+        final EncodedLine utf16 = encodedLine("\u03bb \u2192 x", 5, 2);
+        store.add(empty);
+        store.add(latin1);
+        store.add(utf16);
+
+        assertThat(store.size()).isEqualTo(3);
+        assertLine(store.get(0), empty);
+        assertLine(store.get(1), latin1);
+        assertLine(store.get(2), utf16);
+    }
+
+    @Test
+    public void testManyLinesAreReadBackAcrossSegments() {
+        for (int i = 0; i < 1000; i++) {
+            store.add(encodedLine("line " + i, 5, 0, 5 + String.valueOf(i).length(), i % 3));
+        }
+
+        for (int i = 999; i >= 0; i -= 7) {
+            assertLine(store.get(i), encodedLine("line " + i, 5, 0, 5 + String.valueOf(i).length(), i % 3));
+        }
+    }
+
+    @Test
+    public void testLinesLongerThanTheWriteBuffer() {
+        final char[] text = new char[100_000];
+        for (int i = 0; i < text.length; i++) {
+            text[i] = (char) ('a' + i % 26);
+        }
+        store.add(encodedLine("before", 6, 0));
+        store.add(new EncodedLine(text, new int[]{text.length, 0}));
+        store.add(encodedLine("after", 5, 0));
+
+        assertLine(store.get(0), encodedLine("before", 6, 0));
+        assertThat(store.get(1).text).isEqualTo(text);
+        assertLine(store.get(2), encodedLine("after", 5, 0));
+    }
+
+    @Test
+    public void testRemoveFirstAndLast() {
+        for (int i = 0; i < 5000; i++) {
+            store.add(encodedLine(String.valueOf(i), String.valueOf(i).length(), 0));
+        }
+
+        for (int i = 0; i < 4000; i++) {
+            assertLine(store.removeFirst(), encodedLine(String.valueOf(i), String.valueOf(i).length(), 0));
+        }
+        assertLine(store.removeLast(), encodedLine("4999", 4, 0));
+        store.add(encodedLine("new", 3, 0));
+
+        assertThat(store.size()).isEqualTo(1000);
+        assertLine(store.get(0), encodedLine("4000", 4, 0));
+        assertLine(store.get(998), encodedLine("4998", 4, 0));
+        assertLine(store.get(999), encodedLine("new", 3, 0));
+    }
+
+    @Test
+    public void testSetAndRemoveInBetween() {
+        for (int i = 0; i < 100; i++) {
+            store.add(encodedLine(String.valueOf(i), String.valueOf(i).length(), 0));
+        }
+
+        store.set(50, encodedLine("fifty", 5, 1));
+        assertLine(store.remove(10), encodedLine("10", 2, 0));
+        assertThat(store.size()).isEqualTo(99);
+        assertLine(store.get(9), encodedLine("9", 1, 0));
+        assertLine(store.get(10), encodedLine("11", 2, 0));
+        assertLine(store.get(49), encodedLine("fifty", 5, 1));
+        assertLine(store.get(98), encodedLine("99", 2, 0));
+    }
+
+    @Test
+    public void testClear() {
+        store.add(encodedLine("Hello", 5, 0));
+        store.clear();
+        assertThat(store.size()).isEqualTo(0);
+
+        store.add(encodedLine("world", 5, 0));
+        assertLine(store.get(0), encodedLine("world", 5, 0));
+    }
+
+    @Test
+    public void testClearReusesMappedSegments() {
+        for (int i = 0; i < 100; i++) {
+            final String text = "before " + i;
+            store.add(encodedLine(text, text.length(), 0));
+            store.get(i);
+        }
+        store.clear();
+
+        for (int i = 0; i < 100; i++) {
+            final String text = "after " + i;
+            store.add(encodedLine(text, 6, 0, text.length(), 1));
+        }
+        for (int i = 0; i < 100; i++) {
+            final String text = "after " + i;
+            assertLine(store.get(i), encodedLine(text, 6, 0, text.length(), 1));
+        }
+    }
+
+    @Test
+    public void testScrollbackBufferWithFileLineStore() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(3, store);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(new Line(new Fragment(String.valueOf(i), Color.BLUE)));
+        }
+
+        assertThat(buffer).isEqualTo(asList(new Line(new Fragment("7", Color.BLUE)), new Line(new Fragment("8", Color.BLUE)), new Line(new Fragment("9", Color.BLUE))));
+    }
+
+    private EncodedLine encodedLine(String text, int... runs) {
+        return new EncodedLine(text.toCharArray(), runs);
+    }
+
+    private void assertLine(EncodedLine actual, EncodedLine expected) {
+        assertThat(new String(actual.text)).isEqualTo(new String(expected.text));
+        assertThat(actual.runs).isEqualTo(expected.runs);
+    }
+}
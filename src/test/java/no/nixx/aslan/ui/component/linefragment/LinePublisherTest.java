@@ -0,0 +1,152 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import javafx.scene.paint.Color;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LinePublisherTest {
+
+    @Test
+    public void testChangesAreAppliedWhenPublished() {
+        final List<Line> list = new ArrayList<>();
+        final LinePublisher publisher = new LinePublisher(list, 100);
+        final LineFragmentOutputStream os = createOutputStream(publisher);
+
+        write(os, "Hello");
+        os.flush();
+        assertThat(list).isEmpty();
+
+        publisher.publish();
+        assertThat(list).isEqualTo(singletonList(new Line(new Fragment("Hello"))));
+    }
+
+    @Test
+    public void testLinesFromManyFlushesAreAddedTogether() {
+        final List<Line> list = new ArrayList<>();
+        final LinePublisher publisher = new LinePublisher(list, 100);
+        final LineFragmentOutputStream os = createOutputStream(publisher);
+
+        for (String s : asList("a\n", "b", "c\n", "d\n")) {
+            write(os, s);
+            os.flush();
+        }
+        assertThat(publisher.getPendingLineCount()).isEqualTo(4);
+
+        publisher.publish();
+        assertThat(list).isEqualTo(asList(new Line(new Fragment("a")), new Line(new Fragment("b"), new Fragment("c")), new Line(new Fragment("d")), new Line()));
+
+        write(os, "e");
+        os.flush();
+        os.close();
+        publisher.publish();
+        assertThat(list).isEqualTo(asList(new Line(new Fragment("a")), new Line(new Fragment("b"), new Fragment("c")), new Line(new Fragment("d")), new Line(new Fragment("e"))));
+    }
+
+    @Test
+    public void testEmptyLastLineIsRemovedOnClose() {
+        final List<Line> list = new ArrayList<>(singletonList(new Line()));
+        final LinePublisher publisher = new LinePublisher(list, 100);
+        final LineFragmentOutputStream out = createOutputStream(publisher);
+        final LineFragmentOutputStream err = createOutputStream(publisher);
+
+        write(out, "Foo\n");
+        out.flush();
+        write(err, "Bar\n");
+        err.flush();
+        out.close();
+        err.close();
+        publisher.publish();
+
+        assertThat(list).isEqualTo(asList(new Line(new Fragment("Foo")), new Line(new Fragment("Bar"))));
+        assertThat(publisher.getLastLine()).isSameAs(list.get(1));
+    }
+
+    @Test
+    public void testTaggedLinesAreKeptApartFromOtherOutput() {
+        final Line emptyLine = new Line();
+        final List<Line> list = new ArrayList<>(asList(new Line(new Fragment("> cmd")), emptyLine));
+        final LinePublisher foregroundPublisher = new LinePublisher(list, 100);
+        final LinePublisher jobPublisher = new LinePublisher(list, 100);
+        final Fragment tag = new Fragment("[1] ", Color.GRAY);
+        final LineFragmentOutputStream foreground = createOutputStream(foregroundPublisher);
+        final LineFragmentOutputStream job = new LineFragmentOutputStream(list, new TaggedLineFragmentAdapter(jobPublisher, Color.BLACK, tag));
+
+        write(foreground, "a");
+        foreground.flush();
+        write(job, "x\ny");
+        job.flush();
+        write(foreground, "b\n");
+        foreground.flush();
+        write(job, "z\n");
+        job.flush();
+        job.close();
+        foreground.close();
+        foregroundPublisher.publish();
+        jobPublisher.publish();
+
+        assertThat(list).isEqualTo(asList(
+                new Line(new Fragment("> cmd")),
+                new Line(new Fragment("a"), new Fragment("b")),
+                new Line(tag, new Fragment("x")),
+                new Line(tag, new Fragment("y"), new Fragment("z"))));
+        assertThat(list.get(1)).isSameAs(emptyLine);
+    }
+
+    @Test(timeout = 10_000)
+    public void testWritersAreHeldBackUntilPublished() throws InterruptedException {
+        final List<Line> list = new ArrayList<>();
+        final LinePublisher publisher = new LinePublisher(list, 2);
+        final LineFragmentOutputStream os = createOutputStream(publisher);
+        publisher.publish();
+
+        final Thread writer = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                write(os, "line\n");
+                os.flush();
+            }
+        });
+        writer.start();
+
+        int published = 0;
+        while (writer.isAlive()) {
+            // Keep publishing often enough for the writer to wait, but only now and then
+            TimeUnit.MILLISECONDS.sleep(20);
+            assertThat(publisher.getPendingLineCount()).isLessThanOrEqualTo(2);
+            publisher.publish();
+            published++;
+        }
+        publisher.publish();
+
+        assertThat(published).isGreaterThan(1);
+        assertThat(list).hasSize(6);
+    }
+
+    @Test(timeout = 10_000)
+    public void testWritersAreNotHeldBackWhenNotPublishing() {
+        final List<Line> list = new ArrayList<>();
+        final LinePublisher publisher = new LinePublisher(list, 2);
+        final LineFragmentOutputStream os = createOutputStream(publisher);
+
+        for (int i = 0; i < 10; i++) {
+            write(os, "line\n");
+            os.flush();
+        }
+        assertThat(publisher.getPendingLineCount()).isEqualTo(11);
+    }
+
+    private LineFragmentOutputStream createOutputStream(LinePublisher publisher) {
+        return new LineFragmentOutputStream(publisher.getList(), new BatchingLineFragmentAdapter(publisher, Color.BLACK));
+    }
+
+    private void write(LineFragmentOutputStream os, String string) {
+        final byte[] bytes = string.getBytes();
+        os.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,152 @@
+package no.nixx.aslan.ui.component.linefragment;
+
+import javafx.collections.ListChangeListener;
+import javafx.scene.paint.Color;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScrollbackBufferTest {
+
+    @Test
+    public void testLinesAreKeptWithTheirFragments() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(10);
+        final Line first = new Line(new Fragment("Hello ", Color.BLACK), new Fragment("world", Color.RED), new Fragment(""));
+        final Line second = new Line();
+
+        buffer.addAll(asList(first, second));
+        buffer.add(new Line(new Fragment("last")));
+
+        assertThat(buffer).isEqualTo(asList(first, second, new Line(new Fragment("last"))));
+        assertThat(buffer.get(0).get(1).getColor()).isEqualTo(Color.RED);
+    }
+
+    @Test
+    public void testLastLineIsKeptAsItIs() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(10);
+        final Line line = new Line();
+        buffer.add(line);
+
+        line.add(new Fragment("Hello"));
+        assertThat(buffer.get(0)).isSameAs(line);
+        assertThat(buffer.indexOf(line)).isEqualTo(0);
+
+        buffer.add(new Line());
+        assertThat(buffer.get(0)).isEqualTo(new Line(new Fragment("Hello")));
+    }
+
+    @Test
+    public void testOldestLinesAreDropped() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(3);
+        for (int i = 0; i < 10; i++) {
+            buffer.add(new Line(new Fragment(String.valueOf(i))));
+        }
+
+        assertThat(buffer).isEqualTo(asList(new Line(new Fragment("7")), new Line(new Fragment("8")), new Line(new Fragment("9"))));
+    }
+
+    @Test
+    public void testRemoveFirstAndLast() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            buffer.add(new Line(new Fragment(String.valueOf(i))));
+        }
+
+        assertThat(buffer.remove(2)).isEqualTo(new Line(new Fragment("4")));
+        assertThat(buffer.remove(0)).isEqualTo(new Line(new Fragment("2")));
+        assertThat(buffer).isEqualTo(singletonList(new Line(new Fragment("3"))));
+
+        buffer.add(new Line(new Fragment("5")));
+        buffer.add(new Line(new Fragment("6")));
+        buffer.add(new Line(new Fragment("7")));
+        assertThat(buffer).isEqualTo(asList(new Line(new Fragment("5")), new Line(new Fragment("6")), new Line(new Fragment("7"))));
+
+        buffer.clear();
+        assertThat(buffer).isEmpty();
+    }
+
+    @Test
+    public void testRemoveLineInBetween() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(10);
+        final Line held = new Line(new Fragment("held"));
+        buffer.addAll(asList(new Line(new Fragment("0")), new Line(new Fragment("1")), held));
+        buffer.hold(held);
+        buffer.add(new Line(new Fragment("3")));
+
+        assertThat(buffer.remove(1)).isEqualTo(new Line(new Fragment("1")));
+        assertThat(buffer.get(1)).isSameAs(held);
+        assertThat(buffer.indexOfLiveLine(held)).isEqualTo(1);
+        assertThat(buffer).isEqualTo(asList(new Line(new Fragment("0")), held, new Line(new Fragment("3"))));
+    }
+
+    @Test
+    public void testPublishersKeepWritingToTheirOwnLines() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(10);
+        buffer.add(new Line(new Fragment("> cmd")));
+        final LinePublisher jobPublisher = new LinePublisher(buffer, 100);
+        final LinePublisher foregroundPublisher = new LinePublisher(buffer, 100);
+        final Fragment tag = new Fragment("[1] ", Color.GRAY);
+        final LineFragmentOutputStream job = new LineFragmentOutputStream(buffer, new TaggedLineFragmentAdapter(jobPublisher, Color.BLACK, tag));
+        final LineFragmentOutputStream foreground = new LineFragmentOutputStream(buffer, new BatchingLineFragmentAdapter(foregroundPublisher, Color.BLACK));
+
+        write(job, "x");
+        jobPublisher.publish();
+        write(foreground, "hello\n");
+        foregroundPublisher.publish();
+        write(job, "yz\n");
+        jobPublisher.publish();
+        assertThat(buffer.get(1)).isEqualTo(new Line(tag, new Fragment("x", Color.BLACK), new Fragment("yz", Color.BLACK)));
+
+        job.close();
+        foreground.close();
+        jobPublisher.close();
+        foregroundPublisher.close();
+        jobPublisher.publish();
+        foregroundPublisher.publish();
+
+        assertThat(buffer).isEqualTo(asList(
+                new Line(new Fragment("> cmd"), new Fragment("hello", Color.BLACK)),
+                new Line(tag, new Fragment("x", Color.BLACK), new Fragment("yz", Color.BLACK))));
+    }
+
+    @Test
+    public void testSingleLine() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(1);
+        buffer.add(new Line(new Fragment("a")));
+        buffer.add(new Line(new Fragment("b")));
+        assertThat(buffer).isEqualTo(singletonList(new Line(new Fragment("b"))));
+    }
+
+    @Test
+    public void testChangesAreReported() {
+        final ScrollbackBuffer buffer = new ScrollbackBuffer(3);
+        buffer.addAll(asList(new Line(), new Line()));
+
+        final List<String> changes = new ArrayList<>();
+        buffer.addListener((ListChangeListener<Line>) c -> {
+            while (c.next()) {
+                if (c.wasRemoved()) {
+                    changes.add("removed " + c.getFrom() + " " + c.getRemovedSize());
+                }
+                if (c.wasAdded()) {
+                    changes.add("added " + c.getFrom() + " " + c.getAddedSize());
+                }
+            }
+        });
+
+        buffer.addAll(asList(new Line(), new Line()));
+        assertThat(changes).isEqualTo(asList("removed 0 1", "added 1 2"));
+        assertThat(buffer).hasSize(3);
+    }
+
+    private void write(LineFragmentOutputStream os, String string) {
+        final byte[] bytes = string.getBytes();
+        os.write(bytes, 0, bytes.length);
+        os.flush();
+    }
+}